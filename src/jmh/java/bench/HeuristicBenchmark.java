@@ -0,0 +1,85 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import heuristic.Heuristic;
+import heuristic.Linear;
+import heuristic.Manhattan;
+import heuristic.OutOfPlace;
+import heuristic.WalkingDistance;
+
+import puzzle.AbstractPuzzle;
+import puzzle.Move;
+
+import util.PuzzleNode;
+
+/*
+ * Benchmarks evaluating each heuristic from scratch, and
+ * updating it after a move. Pattern databases are left out,
+ * since they need their files built first.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HeuristicBenchmark {
+
+    @Param({"3", "4"})
+    private int size;
+
+    @Param({"out-of-place", "manhattan", "linear", "walking"})
+    private String heuristic;
+
+    private Heuristic h;
+    private PuzzleNode node;
+    private AbstractPuzzle next;
+    private Move move;
+    private int estimate;
+
+    @Setup
+    public void setup() {
+        switch (heuristic) {
+            case "out-of-place":
+                h = new OutOfPlace();
+                break;
+            case "manhattan":
+                h = new Manhattan(true);
+                break;
+            case "linear":
+                h = new Linear(true);
+                break;
+            default:
+                h = new WalkingDistance(true);
+                break;
+        }
+        AbstractPuzzle p = Instances.get(size, size, 1000, Instances.SEED);
+        node = new PuzzleNode(p, 0, null, null);
+        move = p.successors()[0];
+        next = p.move(move);
+        estimate = h.estimate(p);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return h.evaluate(node);
+    }
+
+    @Benchmark
+    public int update() {
+        return h.update(next, move, estimate);
+    }
+}
@@ -0,0 +1,26 @@
+package bench;
+
+import java.util.Random;
+
+import puzzle.AbstractPuzzle;
+import puzzle.PuzzleFactory;
+
+/*
+ * Fixed, seeded puzzles, so every run benchmarks the same ones.
+ */
+final class Instances {
+
+    static final long SEED = 42;
+
+    private Instances() {}
+
+    /*
+     * Returns the m x n puzzle made by the given number of random
+     * moves from the goal, drawn from the given seed.
+     */
+    static AbstractPuzzle get(int m, int n, int moves, long seed) {
+        AbstractPuzzle p = PuzzleFactory.getPuzzle(m, n);
+        p.randomize(moves, new Random(seed));
+        return p;
+    }
+}
@@ -0,0 +1,85 @@
+package bench;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import puzzle.AbstractPuzzle;
+import puzzle.ArrayPuzzle;
+import puzzle.Move;
+
+import util.PuzzleNode;
+
+/*
+ * Benchmarks making moves and generating successors, on both
+ * the plain array puzzle and the packed one the factory picks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PuzzleBenchmark {
+
+    @Param({"3", "4", "5"})
+    private int size;
+
+    private AbstractPuzzle array;
+    private AbstractPuzzle packed;
+    private PuzzleNode node;
+    private Move move;
+
+    @Setup
+    public void setup() {
+        array = new ArrayPuzzle(size, size);
+        array.randomize(1000, new Random(Instances.SEED));
+        packed = Instances.get(size, size, 1000, Instances.SEED);
+        node = new PuzzleNode(packed, 0, null, null);
+        move = array.successors()[0];
+    }
+
+    @Benchmark
+    public AbstractPuzzle arrayMove() {
+        return array.move(move);
+    }
+
+    @Benchmark
+    public AbstractPuzzle packedMove() {
+        return packed.move(move);
+    }
+
+    // Moves there and back, so the puzzle stays the same
+    @Benchmark
+    public boolean packedInPlaceMove() {
+        packed.inPlaceMove(move);
+        return packed.inPlaceMove(move.inverse());
+    }
+
+    @Benchmark
+    public List<Move> validMoves() {
+        return array.validMoves();
+    }
+
+    @Benchmark
+    public Move[] successors() {
+        return array.successors();
+    }
+
+    @Benchmark
+    public List<PuzzleNode> generate() {
+        return node.generate();
+    }
+}
@@ -0,0 +1,53 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import player.AbstractPlayer;
+
+import puzzle.Main;
+
+/*
+ * Benchmarks whole solves of fixed, seeded 4 x 4 puzzles, one
+ * benchmark per player flag of Main. A fresh puzzle and player
+ * are made before each solve, outside the timing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolveBenchmark {
+
+    @Param({"-ma", "-la", "-mab", "-lab", "-mi", "-li"})
+    private String player;
+
+    @Param({"1", "2", "3"})
+    private long seed;
+
+    private AbstractPlayer solver;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        solver = Main.getPlayer(player, Instances.get(4, 4, 200, seed));
+    }
+
+    @Benchmark
+    public AbstractPlayer solve() {
+        solver.solve();
+        return solver;
+    }
+}
@@ -2,6 +2,9 @@ package heuristic;
 
 import java.util.Comparator;
 
+import puzzle.AbstractPuzzle;
+import puzzle.Move;
+
 import util.Evaluator;
 import util.PuzzleNode;
 
@@ -10,14 +13,87 @@ import util.PuzzleNode;
  */
 public abstract class Heuristic implements Comparator<PuzzleNode>, Evaluator {
 
+    protected boolean opt;
+    protected double weight = 1;
+
+    public Heuristic() {
+        this(true);
+    }
+
+    /*
+     * A non-optimal heuristic ignores the depth of a node,
+     * and only looks at how far it is from the goal.
+     */
+    public Heuristic(boolean optimal) {
+        opt = optimal;
+    }
+
+    /*
+     * Sets the weight the estimate is multiplied by in the cost
+     * of a node, for weighted A*. With a weight of w, the first
+     * solution found is at most w times as long as the shortest.
+     * Nodes scored before the change keep their old cost.
+     */
+    public void setWeight(double w) {
+        weight = w;
+    }
+
+    /*
+     * Orders nodes by the cost stored on them by score(),
+     * breaking ties in favor of the lower estimate, which
+     * is the deeper node.
+     */
     @Override
     public int compare(PuzzleNode a, PuzzleNode b) {
-        int aValue = a.accept(this);
-        int bValue = b.accept(this);
-        return aValue - bValue;
+        if (a.cost() != b.cost()) {
+            return a.cost() - b.cost();
+        }
+        return a.estimate() - b.estimate();
+    }
+
+    /*
+     * Evaluates the given node once, and stores its cost
+     * and estimate on it for later comparisons. The estimate
+     * is carried forward from the parent, which must already
+     * have been scored.
+     */
+    public void score(PuzzleNode n) {
+        PuzzleNode prev = n.lastPuzzle();
+        int estimate = (prev == null)
+            ? estimate(n.puzzle())
+            : update(n.puzzle(), n.lastMove(), prev.estimate());
+        n.score(cost(n.depth(), estimate), estimate);
+    }
+
+    /*
+     * Returns the cost of a node at the given depth with
+     * the given estimate. A weighted estimate is rounded down,
+     * which only tightens the bound.
+     */
+    public int cost(int depth, int estimate) {
+        if (weight != 1) {
+            estimate = (int) (weight * estimate);
+        }
+        return (opt) ? depth + estimate : estimate;
     }
 
     @Override
-    public abstract int evaluate(PuzzleNode n);
+    public int evaluate(PuzzleNode n) {
+        return cost(n.depth(), estimate(n.puzzle()));
+    }
+
+    /*
+     * Returns the estimated number of moves from the given
+     * puzzle to the goal.
+     */
+    public abstract int estimate(AbstractPuzzle p);
 
+    /*
+     * Returns the estimate for the given puzzle, which has just
+     * made the given move from a position with the given estimate.
+     * Subclasses override this to only look at what the move changed.
+     */
+    public int update(AbstractPuzzle p, Move mv, int estimate) {
+        return estimate(p);
+    }
 }
@@ -1,66 +1,233 @@
 package heuristic;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
-import util.PuzzleNode;
+import puzzle.AbstractPuzzle;
+import puzzle.Move;
 
 /*
  * Represents the Manhattan distance heuristic
  * with linear conflict.
+ *
+ * Tiles in their goal row, but in the wrong order, can't pass
+ * each other without some of them stepping out of the row and back.
+ * The fewest that have to step out is the number of such tiles
+ * minus the longest run of them already in increasing order, and
+ * each adds two moves to the Manhattan distance. Columns work the
+ * same way, with moves in the other direction, so both add up.
+ *
+ * The penalty of every possible line is computed once per line
+ * length and kept in a table indexed by the line's contents, so
+ * each row and column costs one lookup. Lines too long to tabulate
+ * are worked out directly.
  */
 public class Linear extends Heuristic {
 
-    private boolean opt;
+    private static final int MAX_TABLE = 1 << 21;
+
+    private static final AtomicReferenceArray<byte[]> TABLES =
+        new AtomicReferenceArray<byte[]>(16);
 
     public Linear(boolean optimal) {
-        opt = optimal;
+        super(optimal);
     }
 
     @Override
-    public int evaluate(PuzzleNode n) {
+    public int estimate(AbstractPuzzle p) {
 
         int counter = 0;
-        int[] size = n.size();
-
-        ArrayList<Integer> C = new ArrayList<Integer>();
-        
-        for (int y = 0; y < size[0]; y++) {
-            for (int x = 0; x < size[1]; x++) {
-                int k = n.get(x, y);
-                if (k == size[0] * size[1] - 1) continue;
-                int dy = Math.abs(k / size[1] - y);
-                counter += dy;
-                if (dy == 0) C.add(k);
+        int M = p.rows();
+        int N = p.cols();
+
+        for (int y = 0; y < M; y++) {
+            for (int x = 0; x < N; x++) {
+                int k = p.get(x, y);
+                if (k == M * N - 1) continue;
+                counter += Math.abs(k / N - y);
+                counter += Math.abs(k % N - x);
             }
-            counter += 2 * conflict(C);
-            C.clear();
+            counter += 2 * rowConflict(p, y, -1, 0);
+        }
+
+        for (int x = 0; x < N; x++) {
+            counter += 2 * colConflict(p, x, -1, 0);
         }
 
-        for (int x = 0; x < size[1]; x++) {
-            for (int y = 0; y < size[0]; y++) {
-                int k = n.get(x, y);
-                if (k == size[0] * size[1] - 1) continue;
-                int dx = Math.abs(k % size[1] - x);
-                counter += dx;
-                if (dx == 0) C.add(k);
+        return counter;
+    }
+
+    /*
+     * A slide changes the distance of one tile, and the conflicts
+     * of the two rows (or columns) it slid between.
+     */
+    @Override
+    public int update(AbstractPuzzle p, Move mv, int estimate) {
+
+        int M = p.rows();
+        int N = p.cols();
+        int from = p.blank();
+        int to = p.previousBlank(mv);
+        int k = p.get(to % N, to / N);
+        int blank = M * N - 1;
+
+        estimate += Manhattan.distance(k, to, N) - Manhattan.distance(k, from, N);
+
+        if (from % N == to % N) {
+            int x = from % N;
+            int a = from / N;
+            int b = to / N;
+            estimate += 2 * (rowConflict(p, a, -1, 0) + rowConflict(p, b, -1, 0));
+            estimate -= 2 * (rowConflict(p, a, x, k) + rowConflict(p, b, x, blank));
+        } else {
+            int y = from / N;
+            int a = from % N;
+            int b = to % N;
+            estimate += 2 * (colConflict(p, a, -1, 0) + colConflict(p, b, -1, 0));
+            estimate -= 2 * (colConflict(p, a, y, k) + colConflict(p, b, y, blank));
+        }
+
+        return estimate;
+    }
+
+    /*
+     * Returns the fewest tiles that must leave row y for the tiles
+     * that belong in it to get by each other. The tile at column
+     * at is taken to be tile instead, which lets callers look at
+     * the row as it was before the last move.
+     */
+    private int rowConflict(AbstractPuzzle p, int y, int at, int tile) {
+
+        int N = p.cols();
+        int blank = p.rows() * N - 1;
+        byte[] table = table(N);
+
+        if (table != null) {
+            int code = 0;
+            for (int i = 0; i < N; i++) {
+                int a = (i == at) ? tile : p.get(i, y);
+                int d = (a != blank && a / N == y) ? a % N + 1 : 0;
+                code = code * (N + 1) + d;
             }
-            counter += 2 * conflict(C);
-            C.clear();
+            return table[code];
         }
 
-        return (opt) ? counter + n.depth() : counter;
+        int[] line = new int[N];
+        int k = 0;
+        for (int i = 0; i < N; i++) {
+            int a = (i == at) ? tile : p.get(i, y);
+            if (a != blank && a / N == y) {
+                line[k++] = a % N;
+            }
+        }
+        return removals(line, k);
     }
 
-    private int conflict(List<Integer> line) {
+    /*
+     * Returns the fewest tiles that must leave column x for the
+     * tiles that belong in it to get by each other, substituting
+     * tile at row at.
+     */
+    private int colConflict(AbstractPuzzle p, int x, int at, int tile) {
+
+        int M = p.rows();
+        int N = p.cols();
+        int blank = M * N - 1;
+        byte[] table = table(M);
 
-        int sum = 0;
-        for (int i = 0; i < line.size(); i++) {
-            for (int j = i + 1; j < line.size(); j++) {
-                if (line.get(i) > line.get(j)) sum++;
+        if (table != null) {
+            int code = 0;
+            for (int i = 0; i < M; i++) {
+                int a = (i == at) ? tile : p.get(x, i);
+                int d = (a != blank && a % N == x) ? a / N + 1 : 0;
+                code = code * (M + 1) + d;
             }
+            return table[code];
+        }
+
+        int[] line = new int[M];
+        int k = 0;
+        for (int i = 0; i < M; i++) {
+            int a = (i == at) ? tile : p.get(x, i);
+            if (a != blank && a % N == x) {
+                line[k++] = a / N;
+            }
+        }
+        return removals(line, k);
+    }
+
+    /*
+     * Returns the penalty table for lines of the given length, or
+     * null if it would be too large. A line is indexed by reading
+     * it as a number in base length + 1, with one digit per cell:
+     * 0 for a tile that doesn't belong in the line, or else one
+     * more than the tile's goal position along it.
+     */
+    private static byte[] table(int length) {
+        if (length >= TABLES.length()) {
+            return null;
+        }
+        byte[] table = TABLES.get(length);
+        if (table != null) {
+            return table;
+        }
+
+        long size = 1;
+        for (int i = 0; i < length; i++) {
+            size *= length + 1;
+        }
+        if (size > MAX_TABLE) {
+            return null;
+        }
+
+        table = new byte[(int) size];
+        int[] line = new int[length];
+        for (int code = 0; code < size; code++) {
+            int k = 0;
+            for (int c = code, i = length - 1; i >= 0; i--, c /= length + 1) {
+                int d = c % (length + 1);
+                if (d > 0) {
+                    line[k++] = d - 1;
+                }
+            }
+            reverse(line, k);
+            table[code] = (byte) removals(line, k);
+        }
+        TABLES.compareAndSet(length, null, table);
+        return TABLES.get(length);
+    }
+
+    private static void reverse(int[] a, int k) {
+        for (int i = 0, j = k - 1; i < j; i++, j--) {
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
         }
-        return sum;
     }
-}
 
+    /*
+     * Returns the fewest of the first k goal positions that must
+     * be removed to leave the rest in increasing order: k minus
+     * the length of the longest increasing subsequence.
+     */
+    private static int removals(int[] line, int k) {
+        int[] tails = new int[k];
+        int length = 0;
+        for (int i = 0; i < k; i++) {
+            int lo = 0;
+            int hi = length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (tails[mid] < line[i]) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            tails[lo] = line[i];
+            if (lo == length) {
+                length++;
+            }
+        }
+        return k - length;
+    }
+}
@@ -1,35 +1,54 @@
 package heuristic;
 
-import util.PuzzleNode;
+import puzzle.AbstractPuzzle;
+import puzzle.Move;
 
 /*
  * Represents the Manhattan distance heuristic.
  */
 public class Manhattan extends Heuristic {
 
-    private boolean opt;
-
     public Manhattan(boolean optimal) {
-        opt = optimal; 
+        super(optimal);
     }
 
     @Override
-    public int evaluate(PuzzleNode n) {
+    public int estimate(AbstractPuzzle p) {
 
         int counter = 0;
-        int M = n.size()[0];
-        int N = n.size()[1];
+        int M = p.size()[0];
+        int N = p.size()[1];
 
         for (int y = 0; y < M; y++) {
             for (int x = 0; x < N; x++) {
-                int k = n.get(x, y);
+                int k = p.get(x, y);
                 if (k == M * N - 1) continue;
                 counter += Math.abs(k % N - x);
                 counter += Math.abs(k / N - y);
             }
         }
 
-        return (opt) ? counter + n.depth() : counter;
+        return counter;
+    }
+
+    /*
+     * Only the tile that was slid changes its distance.
+     */
+    @Override
+    public int update(AbstractPuzzle p, Move mv, int estimate) {
+        int N = p.cols();
+        int from = p.blank();
+        int to = p.previousBlank(mv);
+        int k = p.get(to % N, to / N);
+        return estimate + distance(k, to, N) - distance(k, from, N);
+    }
+
+    /*
+     * Returns the Manhattan distance from index i to the
+     * goal of tile k, on a board with N columns.
+     */
+    static int distance(int k, int i, int N) {
+        return Math.abs(k % N - i % N) + Math.abs(k / N - i / N);
     }
 }
 
@@ -0,0 +1,95 @@
+package heuristic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Read-only table of bytes stored in a region of a file.
+ *
+ * Nothing is read up front: the region is mapped in segments of
+ * up to 1 GB, the file is closed, and the OS pages the segments in
+ * on demand. Opening a table costs the same whatever its size,
+ * tables may be larger than 2 GB, and every table opened on the
+ * same file shares one mapping in this JVM and one copy in the
+ * page cache across processes.
+ *
+ * A mapping is only reused while the file keeps the size and
+ * modification time it had when mapped, so a file rebuilt while
+ * the JVM runs is mapped again.
+ *
+ * PatternDatabase builds each table in one array, so its tables
+ * stay under 2 GB, and the usual ones fit in a single segment: 7-8
+ * on a 4 x 4 board is about 0.5 GB. Only groups with more placements
+ * than 2^30, such as 8 tiles on a 3 x 6 board, are mapped in more
+ * than one segment.
+ */
+class MappedTable {
+
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    private static final ConcurrentHashMap<String, MappedTable> OPEN =
+        new ConcurrentHashMap<String, MappedTable>();
+
+    private long size;
+    private long length;
+    private long modified;
+    private MappedByteBuffer[] segments;
+
+    private MappedTable(long size, long length, long modified, MappedByteBuffer[] segments) {
+        this.size = size;
+        this.length = length;
+        this.modified = modified;
+        this.segments = segments;
+    }
+
+    /*
+     * Returns the table of the given size starting at offset
+     * in the given file, reusing it if it is already open and
+     * the file hasn't changed since.
+     */
+    static MappedTable open(File file, long offset, long size) throws IOException {
+        String key = file.getCanonicalPath() + "@" + offset;
+        long length = file.length();
+        long modified = file.lastModified();
+        MappedTable table = OPEN.get(key);
+        if (table != null && table.length == length && table.modified == modified) {
+            return table;
+        }
+
+        // Mappings stay valid once the file is closed
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() < offset + size) {
+                throw new IOException(file + " is truncated");
+            }
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+            for (int s = 0; s < segments.length; s++) {
+                long start = (long) s << SEGMENT_BITS;
+                long count = Math.min(SEGMENT_MASK + 1, size - start);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, count);
+            }
+            table = new MappedTable(size, length, modified, segments);
+        }
+        OPEN.put(key, table);
+        return table;
+    }
+
+    /*
+     * Returns the unsigned byte at index i.
+     */
+    int get(long i) {
+        return segments[(int) (i >>> SEGMENT_BITS)].get((int) (i & SEGMENT_MASK)) & 0xFF;
+    }
+
+    /*
+     * Returns the number of bytes in this table.
+     */
+    long size() {
+        return size;
+    }
+}
@@ -1,6 +1,7 @@
 package heuristic;
 
-import util.PuzzleNode;
+import puzzle.AbstractPuzzle;
+import puzzle.Move;
 
 /*
  * Represents the out-of-place heuristic, which counts
@@ -9,19 +10,30 @@ import util.PuzzleNode;
 public class OutOfPlace extends Heuristic { 
 
     @Override
-    public int evaluate(PuzzleNode n) {
+    public int estimate(AbstractPuzzle p) {
         
-        int[] size = n.size();
+        int[] size = p.size();
         int counter = 0;
 
         for (int y = 0, i = 0; y < size[0]; y++) {
             for (int x = 0; x < size[1]; x++) {
-                int tile = n.get(x, y);
+                int tile = p.get(x, y);
                 if (tile != i++ && tile != size[0] * size[1] - 1) {
                     counter++; 
                 }
             }
         }
-        return counter + n.depth();
+        return counter;
+    }
+
+    @Override
+    public int update(AbstractPuzzle p, Move mv, int estimate) {
+        int N = p.cols();
+        int from = p.blank();
+        int to = p.previousBlank(mv);
+        int tile = p.get(to % N, to / N);
+        if (tile == from) estimate++;
+        if (tile == to) estimate--;
+        return estimate;
     }
 }
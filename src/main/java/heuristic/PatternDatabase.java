@@ -0,0 +1,422 @@
+package heuristic;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+import puzzle.AbstractPuzzle;
+import puzzle.Move;
+
+/*
+ * Represents an additive pattern database heuristic.
+ *
+ * The tiles are split into disjoint groups. For each group, a
+ * table holds the number of moves of that group's tiles needed
+ * to bring them home, for every placement of them on the board.
+ * Moves of other tiles are free, so the sum over groups never
+ * overestimates, and no move changes it by more than one, so A*
+ * never has to reopen a board.
+ *
+ * Tables are built once by breadth-first search back from the
+ * goal, and saved to a file in the given directory. Later runs
+ * map that file lazily instead of building them again, so they
+ * start up in the same time whatever the size of the tables.
+ *
+ * Each thread keeps the cell of every tile on the last board it
+ * looked at, and only decodes the parts of the next board that
+ * changed, so updating an estimate after a move costs a few word
+ * compares and one group's worth of ranking, not a pass over the
+ * whole board.
+ */
+public class PatternDatabase extends Heuristic {
+
+    private static final int MAGIC = 0x50444232;
+
+    private int m;
+    private int n;
+    private int[][] groups;
+    private int[] group;
+    private int[] slot;
+    private long[][] factors;
+    private MappedTable[] tables;
+
+    private ThreadLocal<Tracker> trackers = new ThreadLocal<Tracker>() {
+        @Override
+        protected Tracker initialValue() {
+            return new Tracker();
+        }
+    };
+
+    /*
+     * Loads or builds the database for m x n boards, with
+     * consecutive groups of tiles of the given sizes, kept
+     * in the given directory.
+     */
+    public PatternDatabase(int m, int n, int[] sizes, File dir) {
+        this.m = m;
+        this.n = n;
+        int N = m * n;
+        if (N > 64) {
+            throw new IllegalArgumentException("Pattern databases support at most 64 tiles");
+        }
+
+        groups = new int[sizes.length][];
+        group = new int[N];
+        slot = new int[N];
+        factors = new long[sizes.length][];
+        Arrays.fill(group, -1);
+
+        int tile = 0;
+        for (int g = 0; g < sizes.length; g++) {
+            if (sizes[g] < 1 || sizes[g] > 10) {
+                throw new IllegalArgumentException("Pattern groups must have 1 to 10 tiles");
+            }
+            groups[g] = new int[sizes[g]];
+            for (int i = 0; i < sizes[g]; i++, tile++) {
+                groups[g][i] = tile;
+                group[tile] = g;
+                slot[tile] = i;
+            }
+            factors[g] = factors(N, sizes[g]);
+        }
+        if (tile != N - 1) {
+            throw new IllegalArgumentException("Pattern groups must cover all " + (N - 1) + " tiles");
+        }
+
+        File file = new File(dir, "pdb-" + m + "x" + n + "-" + name(sizes) + ".bin");
+        try {
+            if (!file.exists() || stale(file)) {
+                save(file);
+            }
+            tables = load(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * Returns the default grouping for m x n boards: one group
+     * if the whole board is small, or else groups of five tiles.
+     */
+    public static int[] defaultSizes(int m, int n) {
+        int tiles = m * n - 1;
+        if (tiles <= 8) {
+            return new int[] {tiles};
+        }
+        int[] sizes = new int[(tiles + 4) / 5];
+        for (int g = 0; g < sizes.length; g++) {
+            sizes[g] = Math.min(5, tiles - 5 * g);
+        }
+        return sizes;
+    }
+
+    /*
+     * Parses a grouping such as 6-6-3.
+     */
+    public static int[] parseSizes(String spec) {
+        String[] parts = spec.split("-");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            sizes[i] = Integer.parseInt(parts[i]);
+        }
+        return sizes;
+    }
+
+    private static String name(int[] sizes) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < sizes.length; i++) {
+            if (i > 0) sb.append("-");
+            sb.append(sizes[i]);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public int estimate(AbstractPuzzle p) {
+        int[] cells = trackers.get().sync(p);
+        int counter = 0;
+        for (int g = 0; g < groups.length; g++) {
+            counter += lookup(g, place(g, cells));
+        }
+        return counter;
+    }
+
+    /*
+     * Only the group of the tile that was slid changes, and its
+     * placement before the move differs in that tile alone.
+     */
+    @Override
+    public int update(AbstractPuzzle p, Move mv, int estimate) {
+        int[] cells = trackers.get().sync(p);
+        int from = p.blank();
+        int to = p.previousBlank(mv);
+        int k = p.get(to % n, to / n);
+        int g = group[k];
+        long after = place(g, cells);
+        long before = after ^ ((long) (to ^ from) << (6 * slot[k]));
+        return estimate + lookup(g, after) - lookup(g, before);
+    }
+
+    private int lookup(int g, long placement) {
+        return tables[g].get(rank(placement, factors[g]));
+    }
+
+    /*
+     * Packs the cells of group g's tiles, six bits apiece.
+     */
+    private long place(int g, int[] cells) {
+        long placement = 0;
+        for (int i = 0; i < groups[g].length; i++) {
+            placement |= (long) cells[groups[g][i]] << (6 * i);
+        }
+        return placement;
+    }
+
+    /*
+     * Returns the weight of each digit of a placement's rank:
+     * digit i ranges over the N - i cells left free.
+     */
+    private static long[] factors(int N, int k) {
+        long[] f = new long[k];
+        f[k - 1] = 1;
+        for (int i = k - 2; i >= 0; i--) {
+            f[i] = f[i + 1] * (N - i - 1);
+        }
+        return f;
+    }
+
+    /*
+     * Ranks a placement of k distinct cells among N, from 0
+     * up to N! / (N - k)!.
+     */
+    private static long rank(long placement, long[] f) {
+        long used = 0;
+        long r = 0;
+        for (int i = 0; i < f.length; i++) {
+            int pos = (int) (placement >>> (6 * i)) & 63;
+            r += (pos - Long.bitCount(used & ((1L << pos) - 1))) * f[i];
+            used |= 1L << pos;
+        }
+        return r;
+    }
+
+    /*
+     * Inverse of rank.
+     */
+    private static long unrank(long r, long[] f) {
+        long used = 0;
+        long placement = 0;
+        for (int i = 0; i < f.length; i++) {
+            int digit = (int) (r / f[i]);
+            r %= f[i];
+            long free = ~used;
+            for (int j = 0; j < digit; j++) {
+                free &= free - 1;
+            }
+            int pos = Long.numberOfTrailingZeros(free);
+            placement |= (long) pos << (6 * i);
+            used |= 1L << pos;
+        }
+        return placement;
+    }
+
+    /*
+     * Builds the table of one group by breadth-first search back
+     * from the goal over placements of its tiles alone. One of the
+     * group's tiles may slide into any neighbouring cell that holds
+     * none of the others, for one move: the other tiles and the
+     * blank are all treated as space. A real move then changes only
+     * its own tile's group entry, and by at most one, so the sum
+     * over groups is consistent as well as admissible.
+     *
+     * Each pass scans the whole table for the placements at the
+     * current distance, so the search needs no queue.
+     */
+    private byte[] build(int g) {
+
+        int N = m * n;
+        long[] f = factors[g];
+        int k = f.length;
+        long places = f[0] * N;
+        if (places > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Pattern group of " + k + " tiles is too large");
+        }
+
+        byte[] dist = new byte[(int) places];
+        Arrays.fill(dist, (byte) -1);
+
+        long goal = 0;
+        for (int i = 0; i < k; i++) {
+            goal |= (long) groups[g][i] << (6 * i);
+        }
+        dist[(int) rank(goal, f)] = 0;
+
+        int[][] neighbors = new int[N][];
+        for (int b = 0; b < N; b++) {
+            neighbors[b] = neighbors(b);
+        }
+
+        boolean more = true;
+        for (int d = 0; more; d++) {
+            if (d == 0xFF - 1) {
+                throw new IllegalArgumentException("Pattern distances don't fit in a byte");
+            }
+            more = false;
+            for (int r = 0; r < places; r++) {
+                if ((dist[r] & 0xFF) != d) continue;
+                long placement = unrank(r, f);
+                long used = 0;
+                for (int i = 0; i < k; i++) {
+                    used |= 1L << ((placement >>> (6 * i)) & 63);
+                }
+                for (int i = 0; i < k; i++) {
+                    int b = (int) (placement >>> (6 * i)) & 63;
+                    for (int c : neighbors[b]) {
+                        if ((used & (1L << c)) != 0) continue;
+                        long moved = placement ^ ((long) (c ^ b) << (6 * i));
+                        int t = (int) rank(moved, f);
+                        if (dist[t] == -1) {
+                            dist[t] = (byte) (d + 1);
+                            more = true;
+                        }
+                    }
+                }
+            }
+        }
+        return dist;
+    }
+
+    private int[] neighbors(int b) {
+        int[] c = new int[4];
+        int count = 0;
+        if (b >= n) c[count++] = b - n;
+        if (b < (m - 1) * n) c[count++] = b + n;
+        if (b % n > 0) c[count++] = b - 1;
+        if (b % n < n - 1) c[count++] = b + 1;
+        return Arrays.copyOf(c, count);
+    }
+
+    /*
+     * Builds every table and writes them to the given file,
+     * going through a temporary file so that a crashed build
+     * never leaves a partial database behind.
+     */
+    private void save(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(m);
+            out.writeInt(n);
+            out.writeInt(groups.length);
+            for (int[] tiles : groups) {
+                out.writeInt(tiles.length);
+            }
+            for (int g = 0; g < groups.length; g++) {
+                out.write(build(g));
+            }
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not create " + file);
+        }
+    }
+
+    /*
+     * Returns true if the given file was written by an older
+     * version of this class, and so must be built again.
+     */
+    private static boolean stale(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return in.readInt() != MAGIC;
+        } finally {
+            in.close();
+        }
+    }
+
+    /*
+     * Checks the header of the given file, and opens each of
+     * its tables. No table data is read here; see MappedTable.
+     */
+    private MappedTable[] load(File file) throws IOException {
+        long offset = 4 * (4 + groups.length);
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            boolean ok = in.readInt() == MAGIC && in.readInt() == m
+                && in.readInt() == n && in.readInt() == groups.length;
+            for (int g = 0; ok && g < groups.length; g++) {
+                ok = in.readInt() == groups[g].length;
+            }
+            if (!ok) {
+                throw new IOException(file + " is not a pattern database for this board");
+            }
+        } finally {
+            in.close();
+        }
+        MappedTable[] t = new MappedTable[groups.length];
+        for (int g = 0; g < groups.length; g++) {
+            long size = factors[g][0] * m * n;
+            t[g] = MappedTable.open(file, offset, size);
+            offset += size;
+        }
+        return t;
+    }
+
+    /*
+     * The cell of every tile on the last board one thread looked
+     * at, along with that board's packed encoding. Boards a search
+     * looks at one after another differ in a few tiles, so only the
+     * tiles whose bits changed are read again.
+     */
+    private class Tracker {
+
+        private long[] words = new long[0];
+        private int[] cells = new int[m * n];
+        private int bits;
+        private int per;
+        private long mask;
+
+        Tracker() {
+            // Tiles are packed as in AbstractPuzzle.word
+            bits = Math.max(4, 32 - Integer.numberOfLeadingZeros(m * n - 1));
+            per = 64 / bits;
+            mask = (1L << bits) - 1;
+        }
+
+        /*
+         * Brings the tracked board up to p, and returns the cell
+         * of each tile. The array is reused on the next call.
+         */
+        int[] sync(AbstractPuzzle p) {
+            int w = p.words();
+            if (words.length != w) {
+                // A field of all ones is the blank or no tile at all,
+                // so every tile is read the first time
+                words = new long[w];
+                Arrays.fill(words, -1L);
+            }
+            for (int i = 0; i < w; i++) {
+                long word = p.word(i);
+                long x = words[i] ^ word;
+                while (x != 0) {
+                    int k = Long.numberOfTrailingZeros(x) / bits;
+                    int c = i * per + k;
+                    if (k >= per || c >= m * n) break;
+                    cells[(int) (word >>> (bits * k) & mask)] = c;
+                    x &= ~(mask << (bits * k));
+                }
+                words[i] = word;
+            }
+            return cells;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package heuristic;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import puzzle.AbstractPuzzle;
+
+import util.StateTable;
+
+/*
+ * Represents the walking distance heuristic.
+ *
+ * Looking only at rows, a board comes down to how many tiles
+ * from each goal row sit in each row, and which row holds the
+ * blank. Every vertical move trades one tile for the blank between
+ * two neighbouring rows, so the fewest such trades from a board's
+ * counts to the goal's is a lower bound on its vertical moves.
+ * Columns give the same bound for horizontal moves, and since
+ * each move is one or the other, the two add up.
+ *
+ * The distances of every count state are found once per board
+ * size by breadth-first search back from the goal, and shared.
+ * There are few such states (under 25,000 each way on a 4 x 4
+ * board), so the tables are far smaller than pattern databases.
+ * Sizes with too many states are found out by counting them before
+ * the search, and remembered, so they fail quickly every time.
+ */
+public class WalkingDistance extends Heuristic {
+
+    private static final int MAX_STATES = 1 << 22;
+
+    private static final ConcurrentHashMap<Long, Table> TABLES =
+        new ConcurrentHashMap<Long, Table>();
+
+    public WalkingDistance(boolean optimal) {
+        super(optimal);
+    }
+
+    /*
+     * Every move shifts the blank by one cell, so the length of
+     * any solution has the parity of the blank's distance from
+     * its goal corner. An estimate of the other parity is one
+     * short, and is rounded up.
+     */
+    @Override
+    public int estimate(AbstractPuzzle p) {
+        int M = p.rows();
+        int N = p.cols();
+        Table rows = table(M, N);
+        Table cols = table(N, M);
+        int estimate = rows.get(code(p, rows, true)) + cols.get(code(p, cols, false));
+        int blank = p.blank();
+        int parity = (M - 1 - blank / N) + (N - 1 - blank % N);
+        return estimate + ((estimate ^ parity) & 1);
+    }
+
+    /*
+     * Returns the count state of p in table t, by rows if
+     * vertical, or else by columns.
+     */
+    private static long code(AbstractPuzzle p, Table t, boolean vertical) {
+        int N = p.cols();
+        int size = p.rows() * N;
+        int blank = p.blank();
+        long code = 0;
+        for (int i = 0; i < size; i++) {
+            int k = p.get(i % N, i / N);
+            if (k == size - 1) continue;
+            code += vertical ? t.digit(i / N, k / N) : t.digit(i % N, k % N);
+        }
+        return code + t.blank(vertical ? blank / N : blank % N);
+    }
+
+    /*
+     * Returns the table for boards of the given number of lines,
+     * each of the given number of cells.
+     */
+    private static Table table(int lines, int cells) {
+        Long key = ((long) lines << 32) | cells;
+        Table t = TABLES.get(key);
+        if (t == null) {
+            try {
+                t = new Table(lines, cells);
+            } catch (IllegalArgumentException e) {
+                t = new Table(e.getMessage());
+            }
+            Table prev = TABLES.putIfAbsent(key, t);
+            if (prev != null) {
+                t = prev;
+            }
+        }
+        if (t.error != null) {
+            throw new IllegalArgumentException(t.error);
+        }
+        return t;
+    }
+
+    /*
+     * Walking distances of every count state for one direction.
+     *
+     * A state is the matrix of how many tiles with each goal line
+     * sit in each line, plus the line of the blank. Line sums and
+     * goal sums are fixed by the blank, so the last row and column
+     * of the matrix follow from the rest, and a state is encoded by
+     * the rest alone, as digits in base cells + 1.
+     */
+    private static class Table {
+
+        private int lines;
+        private int cells;
+        private long[] weights;
+        private long[] keys;
+        private byte[] dist;
+        private int mask;
+        private String error;
+
+        /*
+         * Creates a marker for a size that has no table.
+         */
+        Table(String error) {
+            this.error = error;
+        }
+
+        Table(int lines, int cells) {
+            this.lines = lines;
+            this.cells = cells;
+            int digits = (lines - 1) * (lines - 1);
+            weights = new long[digits + 1];
+            long w = 1;
+            for (int i = 0; i <= digits; i++) {
+                weights[i] = w;
+                if (w > Long.MAX_VALUE / (cells + 1) / lines) {
+                    throw new IllegalArgumentException(
+                        "Walking distance does not support boards of " + lines + " lines of " + cells);
+                }
+                w *= cells + 1;
+            }
+            build();
+        }
+
+        /*
+         * Returns the part of the code for one tile with goal
+         * line goal sitting in line line.
+         */
+        long digit(int line, int goal) {
+            if (line == lines - 1 || goal == lines - 1) {
+                return 0;
+            }
+            return weights[line * (lines - 1) + goal];
+        }
+
+        /*
+         * Returns the part of the code for the blank in the
+         * given line.
+         */
+        long blank(int line) {
+            return line * weights[weights.length - 1];
+        }
+
+        /*
+         * Returns the walking distance of the given state.
+         */
+        int get(long code) {
+            return dist[slot(code)];
+        }
+
+        private long encode(int[][] counts, int blank) {
+            long code = 0;
+            for (int line = 0; line < lines - 1; line++) {
+                for (int goal = 0; goal < lines - 1; goal++) {
+                    code += counts[line][goal] * digit(line, goal);
+                }
+            }
+            return code + blank(blank);
+        }
+
+        private int[][] decode(long code) {
+            int[][] counts = new int[lines][lines];
+            int blank = (int) (code / weights[weights.length - 1]);
+            code %= weights[weights.length - 1];
+            for (int line = 0; line < lines - 1; line++) {
+                for (int goal = 0; goal < lines - 1; goal++) {
+                    counts[line][goal] = (int) (code % (cells + 1));
+                    code /= cells + 1;
+                }
+            }
+            int last = lines - 1;
+            for (int i = 0; i < last; i++) {
+                counts[i][last] = cells - ((i == blank) ? 1 : 0);
+                counts[last][i] = cells;
+                for (int j = 0; j < last; j++) {
+                    counts[i][last] -= counts[i][j];
+                    counts[last][i] -= counts[j][i];
+                }
+            }
+            counts[last][last] = cells - ((last == blank) ? 1 : 0);
+            for (int j = 0; j < last; j++) {
+                counts[last][last] -= counts[last][j];
+            }
+            return counts;
+        }
+
+        /*
+         * Returns the number of count states, or throws if there
+         * are more than MAX_STATES. For each line of the blank, the
+         * matrices with the right line and goal sums are counted
+         * by filling them in, the last line following from the rest.
+         */
+        private long states() {
+            long count = 0;
+            int[] left = new int[lines];
+            for (int blank = 0; blank < lines; blank++) {
+                Arrays.fill(left, cells);
+                left[lines - 1]--;
+                count = fill(0, 0, blank, cells - ((blank == 0) ? 1 : 0), left, count);
+            }
+            return count;
+        }
+
+        /*
+         * Adds to count the ways to fill in the matrix from the
+         * given line and goal on, with sum tiles left to place in
+         * the line and left[g] tiles left with each goal line g.
+         */
+        private long fill(int line, int goal, int blank, int sum, int[] left, long count) {
+            if (line == lines - 1) {
+                if (++count > MAX_STATES) {
+                    throw new IllegalArgumentException(
+                        "Walking distance has too many states for boards of "
+                        + lines + " lines of " + cells);
+                }
+                return count;
+            }
+            if (goal == lines - 1) {
+                if (sum > left[goal]) {
+                    return count;
+                }
+                left[goal] -= sum;
+                int next = line + 1;
+                count = fill(next, 0, blank, cells - ((next == blank) ? 1 : 0), left, count);
+                left[goal] += sum;
+                return count;
+            }
+            for (int k = Math.min(sum, left[goal]); k >= 0; k--) {
+                left[goal] -= k;
+                count = fill(line, goal + 1, blank, sum - k, left, count);
+                left[goal] += k;
+            }
+            return count;
+        }
+
+        /*
+         * Returns the slot holding code, or the empty slot where
+         * it would go. Codes are stored plus one, so that zero
+         * marks an empty slot.
+         */
+        private int slot(long code) {
+            int slot = (int) StateTable.mix(code + 1) & mask;
+            while (keys[slot] != 0 && keys[slot] != code + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /*
+         * Finds the distance of every state by breadth-first search
+         * back from the goal, where line i holds its own cells
+         * tiles, and the last line holds the blank. The states are
+         * counted first, so the table and queue are sized exactly.
+         */
+        private void build() {
+            long states = states();
+            int capacity = Integer.highestOneBit((int) states * 2) * 2;
+            keys = new long[capacity];
+            dist = new byte[capacity];
+            mask = capacity - 1;
+
+            int[][] goal = new int[lines][lines];
+            for (int i = 0; i < lines; i++) {
+                goal[i][i] = cells;
+            }
+            goal[lines - 1][lines - 1]--;
+
+            long[] queue = new long[(int) states];
+            int head = 0;
+            int tail = 0;
+            long start = encode(goal, lines - 1);
+            keys[slot(start)] = start + 1;
+            queue[tail++] = start;
+
+            while (head < tail) {
+                long code = queue[head++];
+                int d = dist[slot(code)];
+                int blank = (int) (code / weights[weights.length - 1]);
+                int[][] counts = decode(code);
+                for (int next = blank - 1; next <= blank + 1; next += 2) {
+                    if (next < 0 || next >= lines) continue;
+                    for (int g = 0; g < lines; g++) {
+                        if (counts[next][g] == 0) continue;
+                        counts[next][g]--;
+                        counts[blank][g]++;
+                        long c = encode(counts, next);
+                        int slot = slot(c);
+                        if (keys[slot] == 0) {
+                            keys[slot] = c + 1;
+                            dist[slot] = (byte) (d + 1);
+                            queue[tail++] = c;
+                        }
+                        counts[blank][g]--;
+                        counts[next][g]++;
+                    }
+                }
+            }
+        }
+    }
+}
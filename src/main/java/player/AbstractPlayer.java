@@ -1,15 +1,31 @@
 package player;
 
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import puzzle.AbstractPuzzle;
 
+import util.Metrics;
+
 /*
  * Represents a program that solves the n-puzzle.
+ *
+ * A player can be given a deadline, or cancelled from another
+ * thread. Searches poll stopped() as they go, and give up once it
+ * returns true, leaving whatever partial stats they have.
  */
 public abstract class AbstractPlayer {
 
+    // Calls to stopped() between looks at the clock
+    private static final int POLL = 1024;
+
     protected AbstractPuzzle puzzle;
+    protected Metrics metrics = new Metrics();
+
+    private AtomicBoolean cancelled = new AtomicBoolean();
+    private volatile long deadline;
+    private volatile boolean timed;
+    private int polls;
 
     /*
      * Gives a puzzle to this new player.
@@ -28,6 +44,54 @@ public abstract class AbstractPlayer {
      */
     public abstract void step();
 
+    /*
+     * Sets the time, as given by System.nanoTime(), after which
+     * the player should give up.
+     */
+    public void setDeadline(long nanoTime) {
+        deadline = nanoTime;
+        timed = true;
+    }
+
+    /*
+     * Asks the player to give up as soon as it can. Safe to call
+     * from any thread.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    /*
+     * Returns true if the player was cancelled, or ran past its
+     * deadline, and so may not have solved the puzzle.
+     */
+    public boolean timedOut() {
+        return cancelled.get();
+    }
+
+    /*
+     * Returns true if the search should give up. Only looks at
+     * the clock once every POLL calls, so it is cheap enough to
+     * call once per node. Threads of one search may share it.
+     */
+    protected boolean stopped() {
+        if (cancelled.get()) {
+            return true;
+        }
+        if (timed && ++polls % POLL == 0 && System.nanoTime() - deadline >= 0) {
+            cancelled.set(true);
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     * Returns the live metrics of this player's search.
+     */
+    public Metrics metrics() {
+        return metrics;
+    }
+
     /*
      * Prints out any relevant statistics for this player.
      */
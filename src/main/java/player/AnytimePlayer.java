@@ -0,0 +1,219 @@
+package player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import heuristic.Heuristic;
+
+import puzzle.AbstractPuzzle;
+import puzzle.Move;
+
+import util.PuzzleNode;
+import util.StateTable;
+
+/*
+ * Represents a program that solves the n-puzzle with anytime
+ * repairing A* (ARA*).
+ *
+ * The search starts as weighted A* with a large weight, which
+ * finds a solution quickly, at most that many times too long. It
+ * then lowers the weight step by step and carries on from where it
+ * was rather than from scratch: boards whose path got shorter after
+ * they were expanded are set aside, and put back on the open list,
+ * re-sorted under the new weight, at the start of the next round.
+ * Once the weight reaches 1 and the open list runs dry, the
+ * solution is optimal.
+ *
+ * Each better solution is published along with a proven bound
+ * on how much longer it is than the shortest, so when the player
+ * is cancelled or runs out of time, solve() plays the best
+ * solution so far.
+ */
+public class AnytimePlayer extends SearchPlayer {
+
+    private Heuristic h;
+    private double start;
+    private double decrement;
+
+    private volatile Move[] best;
+    private volatile double bound;
+
+    /*
+     * Creates a player that starts with the given weight and
+     * lowers it by decrement after each solution.
+     */
+    public AnytimePlayer(AbstractPuzzle puzzle, Heuristic heuristic, double weight, double decrement) {
+        super(puzzle);
+        h = heuristic;
+        start = weight;
+        this.decrement = decrement;
+        bound = Double.POSITIVE_INFINITY;
+    }
+
+    /*
+     * Returns the best solution found so far, in the order to
+     * play it, or null if there is none yet. The array must
+     * not be changed.
+     */
+    public Move[] best() {
+        return best;
+    }
+
+    /*
+     * Returns how many times longer than the shortest the best
+     * solution so far can be.
+     */
+    public double bound() {
+        return bound;
+    }
+
+    @Override
+    public HashMap<String, Double> stats() {
+        HashMap<String, Double> stats = super.stats();
+        stats.put("Suboptimality bound:  ", bound);
+        return stats;
+    }
+
+    // Helper method for ARA*
+    @Override
+    protected void getMoves() {
+
+        if (puzzle.solved()) {
+            bound = 1;
+            return;
+        }
+
+        double weight = start;
+        h.setWeight(weight);
+        PuzzleNode root = new PuzzleNode(puzzle, 0, null, null);
+        h.score(root);
+
+        // Shortest depth each board has been reached at
+        StateTable depths = new StateTable(puzzle.words());
+        depths.lower(puzzle, 0);
+
+        PriorityQueue<PuzzleNode> open = new PriorityQueue<PuzzleNode>(h);
+        List<PuzzleNode> incons = new ArrayList<PuzzleNode>();
+        open.add(root);
+        PuzzleNode goal = null;
+
+        while (true) {
+            goal = improve(open, incons, depths, goal);
+
+            // A round cut short by stopped() has proven nothing
+            // about the weight, only what the open boards show
+            boolean finished = !timedOut();
+            if (goal != null) {
+                publish(goal, weight, finished, open, incons);
+            }
+            if (stopped() || (weight <= 1 && goal != null)) {
+                break;
+            }
+            if (open.isEmpty() && incons.isEmpty()) {
+                break;
+            }
+
+            weight = Math.max(1, weight - decrement);
+            h.setWeight(weight);
+            PriorityQueue<PuzzleNode> next = new PriorityQueue<PuzzleNode>(h);
+            for (PuzzleNode n : open) {
+                requeue(n, depths, next);
+            }
+            for (PuzzleNode n : incons) {
+                requeue(n, depths, next);
+            }
+            open = next;
+            incons.clear();
+        }
+
+        if (best != null) {
+            for (Move mv : best) {
+                moves.addLast(mv);
+            }
+        }
+    }
+
+    /*
+     * Expands boards in order of weighted cost until none of them
+     * could lead to a shorter solution than goal under the current
+     * weight, and returns the best solution found. Boards reached
+     * by a shorter path after being expanded this round go into
+     * incons instead of the open list.
+     */
+    private PuzzleNode improve(PriorityQueue<PuzzleNode> open, List<PuzzleNode> incons,
+                               StateTable depths, PuzzleNode goal) {
+
+        StateTable closed = new StateTable(puzzle.words());
+        while (!open.isEmpty() && !stopped()) {
+            if (goal != null && goal.depth() <= open.peek().cost()) {
+                break;
+            }
+            PuzzleNode n = open.poll();
+
+            // Skip boards since reached by a shorter path
+            if (n.depth() > depths.get(n.puzzle())) {
+                continue;
+            }
+            closed.add(n.puzzle());
+            explored++;
+
+            for (PuzzleNode next : n.generate()) {
+                if (!depths.lower(next.puzzle(), next.depth())) {
+                    continue;
+                }
+                if (next.solved()) {
+                    goal = next;
+                    continue;
+                }
+                h.score(next);
+                if (closed.contains(next.puzzle())) {
+                    incons.add(next);
+                } else {
+                    open.add(next);
+                }
+            }
+        }
+        return goal;
+    }
+
+    /*
+     * Adds n to the queue with its cost under the current weight,
+     * unless its board has since been reached by a shorter path.
+     */
+    private void requeue(PuzzleNode n, StateTable depths, PriorityQueue<PuzzleNode> queue) {
+        if (n.depth() > depths.get(n.puzzle())) {
+            return;
+        }
+        n.score(h.cost(n.depth(), n.estimate()), n.estimate());
+        queue.add(n);
+    }
+
+    /*
+     * Publishes the path to goal and its bound, which is the
+     * weight if the round finished, or else the last round's bound,
+     * or better if the cheapest board left shows it. The solution
+     * is optimal if no board is left.
+     */
+    private void publish(PuzzleNode goal, double weight, boolean finished,
+                         PriorityQueue<PuzzleNode> open, List<PuzzleNode> incons) {
+
+        int lowest = goal.depth();
+        for (PuzzleNode n : open) {
+            lowest = Math.min(lowest, n.depth() + n.estimate());
+        }
+        for (PuzzleNode n : incons) {
+            lowest = Math.min(lowest, n.depth() + n.estimate());
+        }
+
+        Move[] path = new Move[goal.depth()];
+        int i = path.length;
+        for (PuzzleNode ptr = goal; ptr.lastPuzzle() != null; ptr = ptr.lastPuzzle()) {
+            path[--i] = ptr.lastMove();
+        }
+        best = path;
+        // An earlier round's bound still holds, as goal is no longer
+        bound = Math.min(finished ? weight : bound, (double) goal.depth() / lowest);
+    }
+}
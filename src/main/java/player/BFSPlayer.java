@@ -1,82 +1,97 @@
 package player;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.PriorityQueue;
+import java.util.Queue;
 
 import heuristic.Heuristic;
 
 import puzzle.AbstractPuzzle;
-import puzzle.Move;
 
+import util.Metrics;
 import util.PuzzleNode;
+import util.StateTable;
 
 /*
  * Represents a program that solves the n-puzzle
  * using some variation of breadth-first search.
+ *
+ * The search can be given a budget of nodes to hold at once.
+ * If the open and closed sets outgrow it, they are dropped and
+ * the search carries on as IDA*, which needs almost no memory.
+ * The cheapest node left on the open list is a lower bound on the
+ * solution, so IDA* starts from that threshold instead of from
+ * scratch, and the solution stays optimal.
  */
-public class BFSPlayer extends AbstractPlayer {
+public class BFSPlayer extends SearchPlayer {
 
     private PuzzleNode root;
     private Heuristic h;
-    private Deque<Move> moves;
-    private double explored;
-    private double sol;
+    private long budget;
+    private long calls;
 
     public BFSPlayer(AbstractPuzzle puzzle, Heuristic heuristic) {
+        this(puzzle, heuristic, Long.MAX_VALUE);
+    }
+
+    /*
+     * Creates a player that holds at most budget nodes before
+     * falling back to IDA*.
+     */
+    public BFSPlayer(AbstractPuzzle puzzle, Heuristic heuristic, long budget) {
         super(puzzle);
         h = heuristic;
         root = new PuzzleNode(puzzle, 0, null, null);
-        moves = new ArrayDeque<Move>();
-    }
-
-    @Override
-    public void solve() {
-        explored = 0;
-        getMoves();
-        sol = moves.size();
-        while (!moves.isEmpty()) {
-            puzzle.inPlaceMove(moves.pop());
-        }
+        this.budget = budget;
     }
 
-    @Override
-    public HashMap<String, Double> stats() {
-        HashMap<String, Double> stats = new HashMap<String, Double>(); 
-        stats.put("Solution length:      ", sol);
-        stats.put("Total nodes explored: ", explored);
-        return stats;
-    }
-
-    @Override
-    public void step() {
-        if (moves.isEmpty()) {
-            explored = 0;
-            getMoves();
-            sol = moves.size();
-        }
-        puzzle.inPlaceMove(moves.pop());
+    /*
+     * Returns an empty open list, ordered by the heuristic.
+     */
+    protected Queue<PuzzleNode> frontier() {
+        return new PriorityQueue<PuzzleNode>(h);
     }
 
     // Helper method for BFS
+    @Override
     protected void getMoves() {
 
-        PriorityQueue<PuzzleNode> q = new PriorityQueue<PuzzleNode>(h);
-        HashSet<PuzzleNode> found = new HashSet<PuzzleNode>();
+        Queue<PuzzleNode> q = frontier();
+        StateTable found = new StateTable(puzzle.words());
+        score(root);
         q.add(root);
 
-        while (!q.isEmpty()) {
+        while (!q.isEmpty() && !stopped()) {
+            if ((long) found.size() + q.size() > budget) {
+                int bound = q.peek().cost();
+                q = null;
+                found = null;
+                deepen(bound);
+                return;
+            }
             PuzzleNode n = q.poll(); 
+
+            // A state is closed once it is expanded, which is
+            // when its shortest path is known
+            if (!found.add(n.puzzle())) {
+                metrics.duplicates(1);
+                continue;
+            }
             explored++;
+            metrics.expanded(1);
+            if (found.size() % 1024 == 0) {
+                metrics.sets(q.size(), found.size());
+                metrics.sampleMemory();
+            }
 
             // Keep searching
             if (!n.solved()) {
                 for (PuzzleNode next : n.generate()) {
-                    if (!found.contains(next)) {
-                        found.add(next);
+                    metrics.generated(1);
+                    if (!found.contains(next.puzzle())) {
+                        score(next);
                         q.add(next);
+                    } else {
+                        metrics.duplicates(1);
                     }
                 }
             // Otherwise retrace steps
@@ -91,4 +106,35 @@ public class BFSPlayer extends AbstractPlayer {
             }
         }
     }
+
+    /*
+     * Scores the given node, timing a sample of the calls.
+     */
+    private void score(PuzzleNode n) {
+        if (++calls % Metrics.SAMPLE != 0) {
+            h.score(n);
+            return;
+        }
+        long start = System.nanoTime();
+        h.score(n);
+        metrics.heuristic(System.nanoTime() - start);
+    }
+
+    /*
+     * Finishes the search as IDA*, starting from the given
+     * threshold.
+     */
+    private void deepen(int maxCost) {
+        DepthFirst search = new DepthFirst(this, puzzle, h, null);
+        int estimate = h.estimate(puzzle);
+        metrics.sets(0, 0);
+        while (maxCost >= 0 && maxCost < Integer.MAX_VALUE) {
+            metrics.threshold(maxCost);
+            maxCost = search.search(0, estimate, maxCost, null);
+        }
+        for (int i = 0; maxCost < 0 && i < search.length(); i++) {
+            moves.add(search.path()[i]);
+        }
+        explored += search.explored();
+    }
 }
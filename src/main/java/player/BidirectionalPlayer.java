@@ -0,0 +1,110 @@
+package player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import puzzle.AbstractPuzzle;
+import puzzle.PuzzleFactory;
+
+import util.PuzzleNode;
+import util.StateTable;
+
+/*
+ * Represents a program that solves the n-puzzle using
+ * breadth-first search from both ends at once.
+ *
+ * One search starts from the puzzle and the other from the goal,
+ * and each round expands a whole layer of whichever frontier is
+ * smaller. Every board either search reaches goes into one shared
+ * table, which records the side that reached it and where its node
+ * is kept, so the searches notice at once when they meet. Each half
+ * only goes about half as deep, and so visits roughly the square
+ * root of the boards a one-sided search would.
+ */
+public class BidirectionalPlayer extends SearchPlayer {
+
+    public BidirectionalPlayer(AbstractPuzzle puzzle) {
+        super(puzzle);
+    }
+
+    // Helper method for bidirectional BFS
+    @Override
+    protected void getMoves() {
+
+        if (puzzle.solved()) {
+            return;
+        }
+
+        // Boards map to 2 * i for the ith forward node, and to
+        // 2 * i + 1 for the ith backward node
+        StateTable found = new StateTable(puzzle.words());
+        List<List<PuzzleNode>> nodes = new ArrayList<List<PuzzleNode>>(2);
+        List<List<PuzzleNode>> layers = new ArrayList<List<PuzzleNode>>(2);
+        AbstractPuzzle goal = PuzzleFactory.getPuzzle(puzzle.rows(), puzzle.cols());
+        AbstractPuzzle[] roots = {puzzle, goal};
+        for (int side = 0; side < 2; side++) {
+            PuzzleNode root = new PuzzleNode(roots[side], 0, null, null);
+            found.add(root.puzzle(), side);
+            nodes.add(new ArrayList<PuzzleNode>());
+            nodes.get(side).add(root);
+            layers.add(new ArrayList<PuzzleNode>());
+            layers.get(side).add(root);
+        }
+
+        while (!layers.get(0).isEmpty() && !layers.get(1).isEmpty()) {
+            int side = (layers.get(0).size() <= layers.get(1).size()) ? 0 : 1;
+            List<PuzzleNode> mine = nodes.get(side);
+            List<PuzzleNode> theirs = nodes.get(1 - side);
+            List<PuzzleNode> next = new ArrayList<PuzzleNode>();
+
+            // Finish the layer, since a later node of it may still
+            // meet the other side by a shorter path
+            PuzzleNode near = null;
+            PuzzleNode far = null;
+            for (PuzzleNode n : layers.get(side)) {
+                if (stopped()) {
+                    return;
+                }
+                explored++;
+                for (PuzzleNode child : n.generate()) {
+                    if (found.add(child.puzzle(), 2 * mine.size() + side)) {
+                        mine.add(child);
+                        next.add(child);
+                        continue;
+                    }
+                    int value = found.get(child.puzzle());
+                    if (value % 2 == side) continue;
+                    PuzzleNode other = theirs.get(value / 2);
+                    if (near == null || child.depth() + other.depth() < near.depth() + far.depth()) {
+                        near = child;
+                        far = other;
+                    }
+                }
+            }
+
+            if (near != null) {
+                if (side == 0) {
+                    splice(near, far);
+                } else {
+                    splice(far, near);
+                }
+                return;
+            }
+            layers.set(side, next);
+        }
+    }
+
+    /*
+     * Fills moves with the path from the puzzle to the forward
+     * node, followed by the path from the same board back out
+     * to the goal along the backward node's parents.
+     */
+    private void splice(PuzzleNode forward, PuzzleNode backward) {
+        for (PuzzleNode ptr = forward; ptr.lastPuzzle() != null; ptr = ptr.lastPuzzle()) {
+            moves.push(ptr.lastMove());
+        }
+        for (PuzzleNode ptr = backward; ptr.lastPuzzle() != null; ptr = ptr.lastPuzzle()) {
+            moves.addLast(ptr.lastMove().inverse());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package player;
+
+import java.util.Queue;
+
+import heuristic.Heuristic;
+
+import puzzle.AbstractPuzzle;
+
+import util.BucketQueue;
+import util.PuzzleNode;
+
+/*
+ * Represents a program that solves the n-puzzle using A*
+ * search, with an open list of integer cost buckets in place
+ * of a binary heap.
+ */
+public class BucketPlayer extends BFSPlayer {
+
+    public BucketPlayer(AbstractPuzzle puzzle, Heuristic heuristic) {
+        super(puzzle, heuristic);
+    }
+
+    public BucketPlayer(AbstractPuzzle puzzle, Heuristic heuristic, long budget) {
+        super(puzzle, heuristic, budget);
+    }
+
+    @Override
+    protected Queue<PuzzleNode> frontier() {
+        return new BucketQueue();
+    }
+}
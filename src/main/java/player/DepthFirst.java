@@ -0,0 +1,213 @@
+package player;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import heuristic.Heuristic;
+
+import puzzle.AbstractPuzzle;
+import puzzle.Move;
+
+import util.Metrics;
+import util.TranspositionTable;
+
+/*
+ * Cost-bounded depth-first search for IDA*.
+ *
+ * The search makes and unmakes moves on its puzzle in place,
+ * and keeps the current path in a preallocated array, so no
+ * objects are created while a threshold is searched. The puzzle
+ * is back in its starting state whenever search() returns.
+ *
+ * With a transposition table, a board already reached by a
+ * shorter path is not searched again, since that path is searched
+ * too. A board searched before at the same depth starts from the
+ * bound backed up from that search, which is often enough to cut
+ * it off at once.
+ *
+ * Counts are kept locally and passed to the owner's metrics
+ * every FLUSH nodes, and when search() returns.
+ */
+class DepthFirst {
+
+    private static final int FLUSH = 1 << 12;
+
+    private AbstractPlayer owner;
+    private AbstractPuzzle puzzle;
+    private Heuristic heuristic;
+    private AtomicBoolean stop;
+    private TranspositionTable table;
+    private Move[] path;
+    private int length;
+    private long explored;
+    private long generated;
+    private long hits;
+    private long flushed;
+    private Metrics metrics;
+
+    /*
+     * Creates a search over the given puzzle for the given player,
+     * which gives up when the player is stopped. If stop is not
+     * null, the search also gives up as soon as it is set.
+     */
+    DepthFirst(AbstractPlayer owner, AbstractPuzzle puzzle, Heuristic heuristic, AtomicBoolean stop) {
+        this(owner, puzzle, heuristic, stop, null);
+    }
+
+    /*
+     * Creates a search that also remembers boards in the given
+     * transposition table, unless it is null. The table is not
+     * thread-safe, and must not be shared between searches.
+     */
+    DepthFirst(AbstractPlayer owner, AbstractPuzzle puzzle, Heuristic heuristic,
+            AtomicBoolean stop, TranspositionTable table) {
+        this.owner = owner;
+        this.metrics = owner.metrics();
+        this.puzzle = puzzle;
+        this.heuristic = heuristic;
+        this.stop = stop;
+        this.table = table;
+        path = new Move[64];
+    }
+
+    /*
+     * Searches below the puzzle, which is depth moves into the
+     * path, with the given estimate, having last made the given
+     * move. Returns -1 if solved, or else the lowest cost found
+     * over maxCost.
+     */
+    int search(int depth, int estimate, int maxCost, Move last) {
+        if (path.length <= maxCost) {
+            path = Arrays.copyOf(path, 2 * maxCost);
+        }
+        int result = DFS(depth, estimate, maxCost, last);
+        flush();
+        return result;
+    }
+
+    /*
+     * Passes the counts since the last flush to the metrics.
+     */
+    private void flush() {
+        metrics.expanded(explored - flushed);
+        metrics.generated(generated);
+        metrics.duplicates(hits);
+        flushed = explored;
+        generated = 0;
+        hits = 0;
+    }
+
+    // Depth-first search on the puzzle in place
+    private int DFS(int depth, int estimate, int maxCost, Move last) {
+
+        if (++explored - flushed >= FLUSH) {
+            flush();
+        }
+        int score = heuristic.cost(depth, estimate);
+        if (score > maxCost) {
+            return score; 
+        }
+
+        if (puzzle.solved()) {
+            length = depth;
+            return -1;
+        }
+
+        if ((stop != null && stop.get()) || owner.stopped()) {
+            return Integer.MAX_VALUE;
+        }
+
+        long key = 0;
+        int bound = estimate;
+        if (table != null) {
+            key = TranspositionTable.key(puzzle);
+            int slot = table.find(key, puzzle);
+            if (slot >= 0) {
+                hits++;
+                if (table.depth(slot) < depth) {
+                    return Integer.MAX_VALUE;
+                }
+                // Keep the bound backed up last time, in case every
+                // child is cut and nothing better is stored below.
+                // Children still update the heuristic's own estimate.
+                bound = Math.max(estimate, table.estimate(slot));
+                score = heuristic.cost(depth, bound);
+                if (score > maxCost) {
+                    return score;
+                }
+            }
+            table.store(key, puzzle, depth, bound);
+        }
+
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, 2 * depth);
+        }
+
+        int min = Integer.MAX_VALUE;
+        for (Move mv : puzzle.successors()) {
+            if (last != null && mv == last.inverse()) continue;
+            puzzle.inPlaceMove(mv);
+            path[depth] = mv;
+            generated++;
+            int result = DFS(depth + 1, update(mv, estimate), maxCost, mv);
+            puzzle.inPlaceMove(mv.inverse());
+            if (result < 0) {
+                return -1;
+            }
+            min = (result < min) ? result : min;
+        }
+
+        if (table != null && min < Integer.MAX_VALUE) {
+            table.store(key, puzzle, depth, min - depth);
+        }
+        return min;
+    }
+
+    /*
+     * Updates the estimate after the given move, timing a sample
+     * of the calls.
+     */
+    private int update(Move mv, int estimate) {
+        if (generated % Metrics.SAMPLE != 0) {
+            return heuristic.update(puzzle, mv, estimate);
+        }
+        long start = System.nanoTime();
+        estimate = heuristic.update(puzzle, mv, estimate);
+        metrics.heuristic(System.nanoTime() - start);
+        return estimate;
+    }
+
+    /*
+     * Sets the first moves of the path, leading from wherever
+     * the caller started to this search's puzzle.
+     */
+    void prefix(Move[] moves, int count) {
+        if (path.length < count) {
+            path = new Move[2 * count];
+        }
+        System.arraycopy(moves, 0, path, 0, count);
+    }
+
+    /*
+     * Returns the path found by the last successful search.
+     * Only the first length() moves are meaningful.
+     */
+    Move[] path() {
+        return path;
+    }
+
+    /*
+     * Returns the length of the path found by the last
+     * successful search.
+     */
+    int length() {
+        return length;
+    }
+
+    /*
+     * Returns the number of nodes visited so far.
+     */
+    long explored() {
+        return explored;
+    }
+}
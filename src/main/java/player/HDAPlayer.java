@@ -0,0 +1,348 @@
+package player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import heuristic.Heuristic;
+
+import puzzle.AbstractPuzzle;
+
+import util.PuzzleNode;
+import util.StateTable;
+
+/*
+ * Represents a program that solves the n-puzzle using
+ * hash-distributed A* (HDA*) on several threads.
+ *
+ * Every board is owned by one worker, picked by a hash of its
+ * packed encoding, and only that worker keeps it in its open
+ * list and closed set. Children owned by other workers are
+ * collected into batches and handed over through lock-free
+ * mailboxes, so no worker ever locks or shares a table.
+ *
+ * Each worker also publishes the cost of its cheapest node, and
+ * does not run more than SLACK ahead of the cheapest one anywhere.
+ * Otherwise a worker that gets the processor to itself for a while
+ * goes on to expand nodes far costlier than the solution.
+ *
+ * A solution found this way is only an upper bound, since other
+ * workers may still hold cheaper nodes. Workers keep expanding
+ * nodes cheaper than the best solution so far, and the search ends
+ * once none are left anywhere and no batch is still in flight.
+ */
+public class HDAPlayer extends SearchPlayer {
+
+    private static final int BATCH = 64;
+    private static final int ROUND = 16;
+    private static final int SLACK = 2;
+    private static final long PAUSE = 20000;
+
+    private static final int IDLE = 0;
+    private static final int BUSY = 1;
+    private static final int AHEAD = 2;
+
+    private Heuristic h;
+    private int threads;
+
+    public HDAPlayer(AbstractPuzzle puzzle, Heuristic heuristic, int threads) {
+        super(puzzle);
+        h = heuristic;
+        this.threads = threads;
+    }
+
+    // Helper method for HDA*
+    @Override
+    protected void getMoves() {
+
+        Search search = new Search();
+        PuzzleNode root = new PuzzleNode(puzzle, 0, null, null);
+        h.score(root);
+        search.workers[search.owner(root)].receive(root);
+
+        Thread[] t = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            t[i] = new Thread(search.workers[i], "hda-" + i);
+            t[i].start();
+        }
+        for (int i = 0; i < threads; i++) {
+            try {
+                t[i].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        for (Worker w : search.workers) {
+            explored += w.explored;
+        }
+
+        // A search cut short hasn't proven its best path shortest
+        PuzzleNode ptr = search.best.get();
+        if (ptr != null && !timedOut()) {
+            sol = ptr.depth();
+            while (ptr.lastPuzzle() != null) {
+                moves.push(ptr.lastMove());
+                ptr = ptr.lastPuzzle();
+            }
+        }
+    }
+
+    /*
+     * State shared by the workers of one search.
+     *
+     * work counts the workers that are busy plus the batches sent
+     * but not yet taken in. A worker only stops counting itself
+     * once it has sent everything it generated, and takes itself
+     * back before it takes in a batch, so work only reaches zero
+     * once no node cheaper than the best solution is left.
+     */
+    private class Search {
+
+        private Worker[] workers;
+        private AtomicReference<PuzzleNode> best;
+        private AtomicLong work;
+        private AtomicBoolean done;
+        private AtomicIntegerArray floors;
+
+        Search() {
+            workers = new Worker[threads];
+            for (int i = 0; i < threads; i++) {
+                workers[i] = new Worker(this, i);
+            }
+            best = new AtomicReference<PuzzleNode>();
+            work = new AtomicLong(threads);
+            done = new AtomicBoolean();
+            floors = new AtomicIntegerArray(threads);
+        }
+
+        /*
+         * Returns the cost of the cheapest node any worker holds.
+         */
+        int floor() {
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < threads; i++) {
+                min = Math.min(min, floors.get(i));
+            }
+            return min;
+        }
+
+        /*
+         * Returns the index of the worker owning the given node.
+         */
+        int owner(PuzzleNode n) {
+            long hash = StateTable.hash(n.puzzle()) >>> 32;
+            return (int) (hash % threads);
+        }
+
+        /*
+         * Returns the length of the best solution so far.
+         */
+        int bound() {
+            PuzzleNode b = best.get();
+            return (b == null) ? Integer.MAX_VALUE : b.depth();
+        }
+
+        /*
+         * Keeps the given goal node if it is shorter than the
+         * best solution so far.
+         */
+        void offer(PuzzleNode goal) {
+            PuzzleNode b = best.get();
+            while ((b == null || goal.depth() < b.depth()) && !best.compareAndSet(b, goal)) {
+                b = best.get();
+            }
+        }
+    }
+
+    /*
+     * One thread of the search, with its own share of the boards.
+     */
+    private class Worker implements Runnable {
+
+        private Search search;
+        private int id;
+        private PriorityQueue<PuzzleNode> open;
+        private StateTable closed;
+        private ConcurrentLinkedQueue<List<PuzzleNode>> mailbox;
+        private List<List<PuzzleNode>> outbox;
+        private long explored;
+
+        Worker(Search search, int id) {
+            this.search = search;
+            this.id = id;
+            open = new PriorityQueue<PuzzleNode>(h);
+            closed = new StateTable(puzzle.words());
+            mailbox = new ConcurrentLinkedQueue<List<PuzzleNode>>();
+            outbox = new ArrayList<List<PuzzleNode>>(threads);
+            for (int i = 0; i < threads; i++) {
+                outbox.add(new ArrayList<PuzzleNode>(BATCH));
+            }
+        }
+
+        @Override
+        public void run() {
+            boolean busy = true;
+            while (!search.done.get()) {
+                if (stopped()) {
+                    search.done.set(true);
+                    break;
+                }
+                List<PuzzleNode> batch = mailbox.peek();
+                if (batch != null) {
+                    if (!busy) {
+                        search.work.incrementAndGet();
+                        busy = true;
+                    }
+                    mailbox.poll();
+                    for (PuzzleNode n : batch) {
+                        receive(n);
+                    }
+                    search.work.decrementAndGet();
+                }
+
+                int state = expand();
+                if (state == BUSY) {
+                    busy = true;
+                } else if (state == AHEAD) {
+                    // Still holds work, so stays counted as busy
+                    LockSupport.parkNanos(PAUSE);
+                } else if (busy) {
+                    busy = false;
+                    if (search.work.decrementAndGet() == 0) {
+                        search.done.set(true);
+                    }
+                } else {
+                    LockSupport.parkNanos(PAUSE);
+                }
+            }
+        }
+
+        /*
+         * Takes in a node owned by this worker, unless it has
+         * already been reached at the same depth or less.
+         */
+        void receive(PuzzleNode n) {
+            if (closed.lower(n.puzzle(), n.depth())) {
+                open.add(n);
+            }
+        }
+
+        /*
+         * Expands up to BATCH nodes cheaper than the best solution,
+         * then sends off everything they generated. Returns IDLE if
+         * there was nothing to expand, or AHEAD if all there was to
+         * expand is too far ahead of the other workers.
+         */
+        private int expand() {
+            int limit = publish();
+            if (limit < Integer.MAX_VALUE) {
+                limit = search.floor() + SLACK;
+            }
+
+            int state = IDLE;
+            int expanded = 0;
+            while (expanded < ROUND && !open.isEmpty()) {
+                PuzzleNode n = open.peek();
+                int f = n.depth() + n.estimate();
+                if (f >= search.bound()) {
+                    break;
+                }
+                if (f > limit) {
+                    state = AHEAD;
+                    break;
+                }
+                open.poll();
+
+                // Skip nodes reached more cheaply since they were queued
+                if (closed.get(n.puzzle()) < n.depth()) {
+                    continue;
+                }
+                explored++;
+                expanded++;
+
+                if (n.solved()) {
+                    search.offer(n);
+                    continue;
+                }
+                PuzzleNode parent = n.lastPuzzle();
+                for (PuzzleNode next : n.generate()) {
+                    if (parent != null && next.puzzle().equals(parent.puzzle())) continue;
+
+                    // A goal is never cheaper than the bound it sets,
+                    // so it is kept here instead of being queued
+                    if (next.solved()) {
+                        search.offer(next);
+                        continue;
+                    }
+                    h.score(next);
+                    int owner = search.owner(next);
+                    if (search.workers[owner] == this) {
+                        receive(next);
+                    } else {
+                        List<PuzzleNode> out = outbox.get(owner);
+                        out.add(next);
+                        if (out.size() == BATCH) {
+                            send(owner);
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < threads; i++) {
+                if (!outbox.get(i).isEmpty()) {
+                    send(i);
+                }
+            }
+            publish();
+            return (expanded > 0) ? BUSY : state;
+        }
+
+        /*
+         * Publishes and returns the cost of the cheapest node this
+         * worker could expand, or Integer.MAX_VALUE if there is none.
+         * While batches are waiting in its mailbox, the cost their
+         * senders published for them is kept if it is lower.
+         */
+        private int publish() {
+            PuzzleNode n = open.peek();
+            int f = (n == null) ? Integer.MAX_VALUE : n.depth() + n.estimate();
+            if (f >= search.bound()) {
+                f = Integer.MAX_VALUE;
+            }
+            int current;
+            int floor;
+            do {
+                current = search.floors.get(id);
+                floor = mailbox.isEmpty() ? f : Math.min(f, current);
+            } while (!search.floors.compareAndSet(id, current, floor));
+            return f;
+        }
+
+        /*
+         * Hands the batch for the given owner over, and lowers the
+         * cost the owner published to that of the batch's cheapest
+         * node, so that no one runs ahead of nodes still in flight.
+         */
+        private void send(int owner) {
+            List<PuzzleNode> batch = outbox.get(owner);
+            int f = Integer.MAX_VALUE;
+            for (PuzzleNode n : batch) {
+                f = Math.min(f, n.depth() + n.estimate());
+            }
+            search.work.incrementAndGet();
+            search.workers[owner].mailbox.add(batch);
+            outbox.set(owner, new ArrayList<PuzzleNode>(BATCH));
+
+            int current = search.floors.get(owner);
+            while (f < current && !search.floors.compareAndSet(owner, current, f)) {
+                current = search.floors.get(owner);
+            }
+        }
+    }
+}
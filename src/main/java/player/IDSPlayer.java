@@ -1,97 +1,48 @@
 package player;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.HashMap;
-
 import heuristic.Heuristic;
 
 import puzzle.AbstractPuzzle;
-import puzzle.Move;
 
-import util.PuzzleNode;
+import util.TranspositionTable;
 
 /*
  * Represents a program that solves the n-puzzle
  * using iterative depth-first search.
  */
-public class IDSPlayer extends AbstractPlayer {
+public class IDSPlayer extends SearchPlayer {
 
-    private PuzzleNode root;
-    private Deque<Move> moves;
     private Heuristic heuristic;
-    private double explored;
-    private double sol;
+    private int entries;
 
     public IDSPlayer(AbstractPuzzle puzzle, Heuristic h) {
-        super(puzzle);
-        root = new PuzzleNode(puzzle, 0, null, null);
-        moves = new ArrayDeque<Move>();
-        heuristic = h;
-    }
-
-    @Override
-    public void solve() {
-        explored = 0;
-        getMoves();
-        sol = moves.size() - 1;
-        while (!moves.isEmpty()) {
-            puzzle.inPlaceMove(moves.pop());
-        }
-    }
-
-    @Override
-    public void step() {
-        if (moves.isEmpty()) {
-            explored = 0;
-            getMoves();
-            sol = moves.size() - 1;
-        }
-        puzzle.inPlaceMove(moves.pop());
+        this(puzzle, h, 0);
     }
 
-    @Override
-    public HashMap<String, Double> stats() {
-        HashMap<String, Double> stats = new HashMap<String, Double>(); 
-        stats.put("Solution length:      ", sol);
-        stats.put("Total nodes explored: ", explored);
-        return stats;
+    /*
+     * Creates a player with a transposition table of the given
+     * number of entries, or none if it is zero.
+     */
+    public IDSPlayer(AbstractPuzzle puzzle, Heuristic h, int entries) {
+        super(puzzle);
+        heuristic = h;
+        this.entries = entries;
     }
 
     // Helper method for IDS
+    @Override
     protected void getMoves() {
-        int depth = 0;
-        while (depth >= 0) {
-            depth = DFS(root, depth);
+        TranspositionTable table = (entries > 0) ? new TranspositionTable(entries, puzzle.words()) : null;
+        DepthFirst search = new DepthFirst(this, puzzle, heuristic, null, table);
+        int estimate = heuristic.estimate(puzzle);
+        int maxCost = heuristic.cost(0, estimate);
+        while (maxCost >= 0 && maxCost < Integer.MAX_VALUE) {
+            metrics.threshold(maxCost);
+            maxCost = search.search(0, estimate, maxCost, null);
         }
-        return;
-    }
-
-    // Depth-first search
-    protected int DFS(PuzzleNode root, int maxDepth) {
-
-        explored++;
-        int score = heuristic.evaluate(root);
-        if (score > maxDepth) {
-            return score; 
-        }
-
-        if (root.solved()) {
-            Move m = root.lastMove();
-            if (m != null) moves.push(m);
-            return -1;
-        }
-
-        int min = Integer.MAX_VALUE;
-        for (PuzzleNode next : root.generate()){
-            int result = DFS(next, maxDepth);
-            if (result >= 0) {
-                min = (result < min) ? result : min;
-            } else {
-                moves.push(next.lastMove());
-                return -1;
-            }
+        for (int i = 0; maxCost < 0 && i < search.length(); i++) {
+            moves.add(search.path()[i]);
         }
-        return min;
+        explored += search.explored();
     }
 }
@@ -0,0 +1,201 @@
+package player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import heuristic.Heuristic;
+
+import puzzle.AbstractPuzzle;
+import puzzle.Move;
+
+/*
+ * Represents a program that solves the n-puzzle using IDA*
+ * search spread across cores.
+ *
+ * The root is first expanded breadth-first into a frontier of
+ * a few thousand nodes. Each threshold then searches the subtrees
+ * below the frontier as tasks on a ForkJoinPool, which steals
+ * work between threads as subtrees turn out to differ in size.
+ * Every thread lowers one shared next threshold, and the first
+ * to find a solution stops the rest. Since no path under the
+ * previous threshold reached the goal, any solution found under
+ * the current one is optimal.
+ */
+public class ParallelIDSPlayer extends SearchPlayer {
+
+    private Heuristic heuristic;
+    private ForkJoinPool pool;
+    private int target;
+
+    /*
+     * Creates a player that searches on the given pool, from a
+     * frontier of at least target nodes where possible.
+     */
+    public ParallelIDSPlayer(AbstractPuzzle puzzle, Heuristic h, ForkJoinPool pool, int target) {
+        super(puzzle);
+        heuristic = h;
+        this.pool = pool;
+        this.target = target;
+    }
+
+    // Helper method for parallel IDS
+    @Override
+    protected void getMoves() {
+
+        List<Node> frontier = expand();
+        if (frontier == null) {
+            return;
+        }
+
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicReference<Move[]> solution = new AtomicReference<Move[]>();
+        final AtomicLong count = new AtomicLong();
+
+        int maxCost = heuristic.cost(0, heuristic.estimate(puzzle));
+        while (solution.get() == null && maxCost < Integer.MAX_VALUE && !stopped()) {
+            metrics.threshold(maxCost);
+            AtomicInteger next = new AtomicInteger(Integer.MAX_VALUE);
+            pool.invoke(new Split(frontier, 0, frontier.size(), maxCost, next, stop, solution, count));
+            maxCost = next.get();
+        }
+
+        explored += count.get();
+        Move[] path = solution.get();
+        for (int i = 0; path != null && i < path.length; i++) {
+            moves.add(path[i]);
+        }
+    }
+
+    /*
+     * Expands the root breadth-first, never undoing the last move,
+     * until there are at least target nodes. Returns the frontier,
+     * or null if a solution was found on the way, in which case
+     * it is already in moves.
+     */
+    private List<Node> expand() {
+
+        // The root searches the puzzle itself, which is safe since
+        // every search puts it back the way it found it
+        List<Node> frontier = new ArrayList<Node>();
+        frontier.add(new Node(puzzle, new Move[0], heuristic.estimate(puzzle)));
+
+        while (true) {
+            for (Node node : frontier) {
+                explored++;
+                if (node.puzzle.solved()) {
+                    for (Move mv : node.path) {
+                        moves.add(mv);
+                    }
+                    return null;
+                }
+            }
+            if (frontier.size() >= target || stopped()) {
+                return frontier;
+            }
+            List<Node> next = new ArrayList<Node>();
+            for (Node node : frontier) {
+                Move last = (node.path.length == 0) ? null : node.path[node.path.length - 1];
+                for (Move mv : node.puzzle.successors()) {
+                    if (last != null && mv == last.inverse()) continue;
+                    AbstractPuzzle child = node.puzzle.move(mv);
+                    Move[] path = new Move[node.path.length + 1];
+                    System.arraycopy(node.path, 0, path, 0, node.path.length);
+                    path[node.path.length] = mv;
+                    next.add(new Node(child, path, heuristic.update(child, mv, node.estimate)));
+                }
+            }
+            if (next.isEmpty()) {
+                return frontier;
+            }
+            frontier = next;
+        }
+    }
+
+    /*
+     * A frontier node: its own copy of the puzzle, the moves
+     * from the root, and its estimate.
+     */
+    private static class Node {
+
+        private AbstractPuzzle puzzle;
+        private Move[] path;
+        private int estimate;
+
+        Node(AbstractPuzzle puzzle, Move[] path, int estimate) {
+            this.puzzle = puzzle;
+            this.path = path;
+            this.estimate = estimate;
+        }
+    }
+
+    /*
+     * Searches frontier nodes [from, to) under maxCost, splitting
+     * the range in halves so idle threads can steal them.
+     */
+    private class Split extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private List<Node> frontier;
+        private int from;
+        private int to;
+        private int maxCost;
+        private AtomicInteger next;
+        private AtomicBoolean stop;
+        private AtomicReference<Move[]> solution;
+        private AtomicLong count;
+
+        Split(List<Node> frontier, int from, int to, int maxCost, AtomicInteger next,
+                AtomicBoolean stop, AtomicReference<Move[]> solution, AtomicLong count) {
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.maxCost = maxCost;
+            this.next = next;
+            this.stop = stop;
+            this.solution = solution;
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+            if (stop.get()) {
+                return;
+            }
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Split(frontier, from, mid, maxCost, next, stop, solution, count),
+                          new Split(frontier, mid, to, maxCost, next, stop, solution, count));
+                return;
+            }
+
+            Node node = frontier.get(from);
+            int depth = node.path.length;
+            Move last = (depth == 0) ? null : node.path[depth - 1];
+            DepthFirst search = new DepthFirst(ParallelIDSPlayer.this, node.puzzle, heuristic, stop);
+            search.prefix(node.path, depth);
+            int result = search.search(depth, node.estimate, maxCost, last);
+            count.addAndGet(search.explored());
+
+            if (result < 0) {
+                Move[] path = new Move[search.length()];
+                System.arraycopy(search.path(), 0, path, 0, path.length);
+                if (solution.compareAndSet(null, path)) {
+                    stop.set(true);
+                }
+                return;
+            }
+
+            int current = next.get();
+            while (result < current && !next.compareAndSet(current, result)) {
+                current = next.get();
+            }
+        }
+    }
+}
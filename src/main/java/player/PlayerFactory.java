@@ -1,17 +1,28 @@
 package player;
 
+import java.io.File;
+import java.util.concurrent.ForkJoinPool;
+
+import heuristic.Heuristic;
 import heuristic.Linear;
 import heuristic.Manhattan;
 import heuristic.Naive;
 import heuristic.OutOfPlace;
+import heuristic.PatternDatabase;
+import heuristic.WalkingDistance;
 
 import puzzle.AbstractPuzzle;
 
+import util.SolutionCache;
+
 /*
  * Class for generating players.
  */
 public class PlayerFactory {
 
+    // Shared by every player made here, or null if turned off
+    private static final SolutionCache CACHE = solutions();
+
     /*
      * Returns a player taking input from console.
      */
@@ -23,7 +34,15 @@ public class PlayerFactory {
      * Returns a player using naive breadth-first search.
      */
     public static AbstractPlayer getNaiveBFS(AbstractPuzzle ap) {
-        return new BFSPlayer(ap, new Naive());
+        return cached(new BFSPlayer(ap, new Naive(), budget(ap)), true);
+    }
+
+    /*
+     * Returns a player using breadth-first search from both the
+     * puzzle and the goal.
+     */
+    public static AbstractPlayer getBidirectionalBFS(AbstractPuzzle ap) {
+        return cached(new BidirectionalPlayer(ap), true);
     }
 
     /*
@@ -31,7 +50,7 @@ public class PlayerFactory {
      * heuristic.
      */
     public static AbstractPlayer getOutOfPlaceBFS(AbstractPuzzle ap) {
-        return new BFSPlayer(ap, new OutOfPlace());
+        return cached(new BFSPlayer(ap, new OutOfPlace(), budget(ap)), true);
     }
 
     /*
@@ -39,7 +58,7 @@ public class PlayerFactory {
      * heuristic.
      */
     public static AbstractPlayer getManhattanBFS(AbstractPuzzle ap) {
-        return new BFSPlayer(ap, new Manhattan(true));
+        return cached(new BFSPlayer(ap, new Manhattan(true), budget(ap)), true);
     }
 
     /*
@@ -47,7 +66,7 @@ public class PlayerFactory {
      * heuristic.
      */
     public static AbstractPlayer getFastManhattanBFS(AbstractPuzzle ap) {
-        return new BFSPlayer(ap, new Manhattan(false));
+        return cached(new BFSPlayer(ap, new Manhattan(false)), false);
     }
 
     /*
@@ -55,7 +74,45 @@ public class PlayerFactory {
      * plus linear conflicts heuristic.
      */
     public static AbstractPlayer getManhattanConflictBFS(AbstractPuzzle ap) {
-        return new BFSPlayer(ap, new Linear(true));
+        return cached(new BFSPlayer(ap, new Linear(true), budget(ap)), true);
+    }
+
+    /*
+     * Returns a player using weighted A* search with the Manhattan
+     * distance heuristic, whose solution is at most the weight times
+     * longer than the shortest.
+     */
+    public static AbstractPlayer getWeightedManhattanBFS(AbstractPuzzle ap) {
+        Heuristic h = new Manhattan(true);
+        h.setWeight(weight());
+        return cached(new BFSPlayer(ap, h, budget(ap)), false);
+    }
+
+    /*
+     * Returns a player using weighted A* search with the Manhattan
+     * distance plus linear conflicts heuristic.
+     */
+    public static AbstractPlayer getWeightedManhattanConflictBFS(AbstractPuzzle ap) {
+        Heuristic h = new Linear(true);
+        h.setWeight(weight());
+        return cached(new BFSPlayer(ap, h, budget(ap)), false);
+    }
+
+    /*
+     * Returns a player using anytime repairing A* search with the
+     * Manhattan distance plus linear conflicts heuristic, starting
+     * from the weight and lowering it by a quarter each round.
+     */
+    public static AbstractPlayer getAnytimeManhattanConflictBFS(AbstractPuzzle ap) {
+        return cached(new AnytimePlayer(ap, new Linear(true), weight(), 0.25), false);
+    }
+
+    /*
+     * Returns the weight of weighted and anytime A* players, as
+     * set with -Dweight=<WEIGHT>. Defaults to 2.
+     */
+    private static double weight() {
+        return Double.parseDouble(System.getProperty("weight", "2"));
     }
 
     /*
@@ -63,14 +120,63 @@ public class PlayerFactory {
      * plus linear conflicts heuristic.
      */
     public static AbstractPlayer getFastManhattanConflictBFS(AbstractPuzzle ap) {
-        return new BFSPlayer(ap, new Linear(false));
+        return cached(new BFSPlayer(ap, new Linear(false)), false);
+    }
+
+    /*
+     * Returns a player using bucketed A* search with the Manhattan
+     * distance heuristic.
+     */
+    public static AbstractPlayer getManhattanBucketBFS(AbstractPuzzle ap) {
+        return cached(new BucketPlayer(ap, new Manhattan(true), budget(ap)), true);
+    }
+
+    /*
+     * Returns a player using bucketed A* search with the Manhattan
+     * distance plus linear conflicts heuristic.
+     */
+    public static AbstractPlayer getManhattanConflictBucketBFS(AbstractPuzzle ap) {
+        return cached(new BucketPlayer(ap, new Linear(true), budget(ap)), true);
+    }
+
+    /*
+     * Returns a player using hash-distributed A* search with the
+     * Manhattan distance heuristic.
+     */
+    public static AbstractPlayer getManhattanHDA(AbstractPuzzle ap) {
+        return hda(ap, new Manhattan(true));
+    }
+
+    /*
+     * Returns a player using hash-distributed A* search with the
+     * Manhattan distance plus linear conflicts heuristic.
+     */
+    public static AbstractPlayer getManhattanConflictHDA(AbstractPuzzle ap) {
+        return hda(ap, new Linear(true));
+    }
+
+    /*
+     * Returns a player using hash-distributed A* search with an
+     * additive pattern database heuristic.
+     */
+    public static AbstractPlayer getPatternHDA(AbstractPuzzle ap) {
+        return hda(ap, patterns(ap));
+    }
+
+    /*
+     * Returns a hash-distributed A* player with one worker per
+     * core, or as many as set with -Dworkers=<WORKERS>.
+     */
+    private static AbstractPlayer hda(AbstractPuzzle ap, Heuristic h) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return cached(new HDAPlayer(ap, h, Integer.getInteger("workers", cores)), true);
     }
 
     /*
      * Returns a player using naive iterative-deepening search.
      */
     public static AbstractPlayer getNaiveIDS(AbstractPuzzle ap) {
-        return new IDSPlayer(ap, new Naive());
+        return cached(new IDSPlayer(ap, new Naive(), entries()), true);
     }
 
     /*
@@ -78,7 +184,7 @@ public class PlayerFactory {
      * heuristic.
      */
     public static AbstractPlayer getOutOfPlaceIDS(AbstractPuzzle ap) {
-        return new IDSPlayer(ap, new OutOfPlace());
+        return cached(new IDSPlayer(ap, new OutOfPlace(), entries()), true);
     }
 
     /*
@@ -86,7 +192,7 @@ public class PlayerFactory {
      * heuristic.
      */
     public static AbstractPlayer getManhattanIDS(AbstractPuzzle ap) {
-        return new IDSPlayer(ap, new Manhattan(true));
+        return cached(new IDSPlayer(ap, new Manhattan(true), entries()), true);
     }
 
     /*
@@ -94,7 +200,150 @@ public class PlayerFactory {
      * plus linear conflicts heuristic.
      */
     public static AbstractPlayer getManhattanConflictIDS(AbstractPuzzle ap) {
-        return new IDSPlayer(ap, new Linear(true));
+        return cached(new IDSPlayer(ap, new Linear(true), entries()), true);
+    }
+
+    /*
+     * Returns a player using parallel IDA* search with the Manhattan
+     * distance heuristic.
+     */
+    public static AbstractPlayer getParallelManhattanIDS(AbstractPuzzle ap) {
+        return parallelIDS(ap, new Manhattan(true));
+    }
+
+    /*
+     * Returns a player using parallel IDA* search with the Manhattan
+     * distance plus linear conflicts heuristic.
+     */
+    public static AbstractPlayer getParallelManhattanConflictIDS(AbstractPuzzle ap) {
+        return parallelIDS(ap, new Linear(true));
+    }
+
+    /*
+     * Returns a player using parallel IDA* search with an additive
+     * pattern database heuristic.
+     */
+    public static AbstractPlayer getParallelPatternIDS(AbstractPuzzle ap) {
+        return parallelIDS(ap, patterns(ap));
+    }
+
+    /*
+     * Returns a parallel IDA* player on the common fork-join pool,
+     * splitting the search into about 4096 subtrees.
+     */
+    private static AbstractPlayer parallelIDS(AbstractPuzzle ap, Heuristic h) {
+        return cached(new ParallelIDSPlayer(ap, h, ForkJoinPool.commonPool(), 4096), true);
+    }
+
+    /*
+     * Returns a player using A* search with an additive pattern
+     * database heuristic.
+     */
+    public static AbstractPlayer getPatternBFS(AbstractPuzzle ap) {
+        return cached(new BFSPlayer(ap, patterns(ap), budget(ap)), true);
+    }
+
+    /*
+     * Returns a player using IDA* search with an additive pattern
+     * database heuristic.
+     */
+    public static AbstractPlayer getPatternIDS(AbstractPuzzle ap) {
+        return cached(new IDSPlayer(ap, patterns(ap), entries()), true);
+    }
+
+    /*
+     * Returns a player using A* search with the walking distance
+     * heuristic.
+     */
+    public static AbstractPlayer getWalkingDistanceBFS(AbstractPuzzle ap) {
+        return cached(new BFSPlayer(ap, new WalkingDistance(true), budget(ap)), true);
+    }
+
+    /*
+     * Returns a player using IDA* search with the walking distance
+     * heuristic.
+     */
+    public static AbstractPlayer getWalkingDistanceIDS(AbstractPuzzle ap) {
+        return cached(new IDSPlayer(ap, new WalkingDistance(true), entries()), true);
+    }
+
+    /*
+     * Returns the pattern database for the given puzzle's size.
+     * The grouping of tiles can be set with -Dpdb=6-6-3, and the
+     * directory holding the tables with -Dpdb.dir=<DIR>.
+     */
+    private static PatternDatabase patterns(AbstractPuzzle ap) {
+        int m = ap.rows();
+        int n = ap.cols();
+        String spec = System.getProperty("pdb");
+        int[] sizes = (spec == null)
+            ? PatternDatabase.defaultSizes(m, n)
+            : PatternDatabase.parseSizes(spec);
+        File dir = new File(System.getProperty("pdb.dir", "."));
+        return new PatternDatabase(m, n, sizes, dir);
+    }
+
+    /*
+     * Returns the most nodes an A* player may hold before it falls
+     * back to IDA*, as set with -Dbudget=<NODES>, or in bytes with
+     * a k, m or g suffix, e.g. -Dbudget=512m. Unbounded by default.
+     */
+    private static long budget(AbstractPuzzle ap) {
+        String spec = System.getProperty("budget");
+        if (spec == null) {
+            return Long.MAX_VALUE;
+        }
+        spec = spec.trim().toLowerCase();
+        int shift = "kmg".indexOf(spec.charAt(spec.length() - 1));
+        if (shift < 0) {
+            return Long.parseLong(spec);
+        }
+        long bytes = Long.parseLong(spec.substring(0, spec.length() - 1)) << (10 * (shift + 1));
+
+        // Rough size of a node with its board and its share
+        // of the open list and closed set
+        return bytes / (112 + 16 * ap.words());
+    }
+
+    /*
+     * Returns the number of entries in the transposition table of
+     * an IDA* player, as set with -Dtt=<ENTRIES>. Off by default,
+     * so node counts match a plain IDA*.
+     */
+    private static int entries() {
+        return Integer.getInteger("tt", 0);
+    }
+
+    /*
+     * Returns the solution cache, as sized with -Dcache=<ENTRIES>,
+     * or null if it is off, which it is by default.
+     */
+    public static SolutionCache getCache() {
+        return CACHE;
+    }
+
+    private static SolutionCache solutions() {
+        int entries = Integer.getInteger("cache", 0);
+        return (entries > 0) ? new SolutionCache(entries) : null;
+    }
+
+    /*
+     * Has p look up its puzzle in the solution cache before it
+     * searches, and, if exact, store its solutions there.
+     */
+    private static SearchPlayer cached(SearchPlayer p, boolean exact) {
+        if (CACHE != null) {
+            p.setCache(CACHE, exact);
+        }
+        return p;
+    }
+
+    /*
+     * Returns a player solving a row or column at a time, which
+     * is not optimal, but handles boards of any size.
+     */
+    public static AbstractPlayer getReduction(AbstractPuzzle ap) {
+        return cached(new ReductionPlayer(ap), false);
     }
 
     /*
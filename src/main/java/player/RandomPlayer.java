@@ -1,7 +1,6 @@
 package player;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Random;
 
 import puzzle.AbstractPuzzle;
@@ -15,13 +14,21 @@ public class RandomPlayer extends AbstractPlayer {
     Random r;
 
     public RandomPlayer(AbstractPuzzle ap) {
+        this(ap, new Random());
+    }
+
+    /*
+     * Creates a player drawing its moves from the given
+     * source, so that its games can be replayed.
+     */
+    public RandomPlayer(AbstractPuzzle ap, Random random) {
         super(ap);
-        r = new Random();
+        r = random;
     }
 
     @Override
     public void solve() {
-        while (!puzzle.solved()) {
+        while (!puzzle.solved() && !stopped()) {
             step(); 
         }
     }
@@ -33,8 +40,7 @@ public class RandomPlayer extends AbstractPlayer {
 
     @Override
     public void step() {
-        List<Move> moves = puzzle.validMoves();
-        int tile = r.nextInt(moves.size());
-        puzzle.inPlaceMove(moves.get(tile));
+        Move[] moves = puzzle.successors();
+        puzzle.inPlaceMove(moves[r.nextInt(moves.length)]);
     }
 }
@@ -0,0 +1,397 @@
+package player;
+
+import java.util.Arrays;
+
+import puzzle.AbstractPuzzle;
+import puzzle.Move;
+
+/*
+ * Represents a program that solves boards of any size quickly,
+ * but not optimally, the way a person would.
+ *
+ * The top rows are solved one at a time until two are left, and
+ * then the left columns of those two, until a 2 x 2 square is left,
+ * which is solved by turning it. Each tile is walked home one cell
+ * at a time, by bringing the blank round to the cell in front of it
+ * without disturbing it or anything already solved. The last two
+ * tiles of each line can't be placed one after the other, so they
+ * are brought into the 2 x 3 corner of the free area, and a search
+ * of the few ways to arrange them and the blank there finishes
+ * the line.
+ *
+ * Work is roughly linear in the number of moves, which grows as
+ * the cube of the board's side. Moves that undo the one before them
+ * are dropped as they are made.
+ */
+public class ReductionPlayer extends SearchPlayer {
+
+    private int m;
+    private int n;
+    private int[] grid;
+    private int[] pos;
+    private int blank;
+    private boolean[] locked;
+
+    // Scratch space for finding the blank a path round a tile
+    private int[] seen;
+    private int[] prev;
+    private int[] queue;
+    private int stamp;
+
+    public ReductionPlayer(AbstractPuzzle puzzle) {
+        super(puzzle);
+    }
+
+    // Helper method for reduction
+    @Override
+    protected void getMoves() {
+
+        m = puzzle.rows();
+        n = puzzle.cols();
+        int size = m * n;
+        grid = new int[size];
+        pos = new int[size];
+        locked = new boolean[size];
+        seen = new int[size];
+        prev = new int[size];
+        queue = new int[size];
+        for (int i = 0; i < size; i++) {
+            grid[i] = puzzle.get(i % n, i / n);
+            pos[grid[i]] = i;
+        }
+        blank = puzzle.blank();
+
+        // A single line can't be rearranged at all
+        if (m == 1 || n == 1) {
+            moveBlank(size - 1, -1);
+            return;
+        }
+
+        // Moves made before giving up are still worth playing
+        for (int r = 0; r < m - 2; r++) {
+            if (stopped()) return;
+            solveRow(r);
+        }
+        for (int c = 0; c < n - 2; c++) {
+            if (stopped()) return;
+            solveColumn(c);
+        }
+        solveSquare();
+    }
+
+    /*
+     * Solves row r, with the rows below it free.
+     */
+    private void solveRow(int r) {
+        int first = r * n;
+        for (int c = 0; c < n - 2; c++) {
+            place(first + c, first + c);
+            locked[first + c] = true;
+        }
+
+        int a = first + n - 2;
+        int b = first + n - 1;
+        if (grid[a] == a && grid[b] == b) {
+            locked[a] = true;
+            locked[b] = true;
+            return;
+        }
+
+        place(a, a);
+        locked[a] = true;
+        place(b, b + n);
+        locked[b + n] = true;
+        settle(a, b, new int[] {a, b, a + n, b + n, a + 2 * n, b + 2 * n});
+    }
+
+    /*
+     * Solves column c of the last two rows, with the columns
+     * to its right free.
+     */
+    private void solveColumn(int c) {
+        int a = (m - 2) * n + c;
+        int b = (m - 1) * n + c;
+        if (grid[a] == a && grid[b] == b) {
+            locked[a] = true;
+            locked[b] = true;
+            return;
+        }
+
+        place(a, a);
+        locked[a] = true;
+        place(b, b + 1);
+        locked[b + 1] = true;
+        settle(a, b, new int[] {a, a + 1, a + 2, b, b + 1, b + 2});
+    }
+
+    /*
+     * Puts tiles a and b home, given that both, locked where they
+     * are, lie in the given cells, which include their goals. The
+     * blank is brought into the cells too, and then the shortest
+     * way to the goals is found by breadth-first search over where
+     * a, b and the blank are, since the other tiles there don't
+     * matter.
+     */
+    private void settle(int a, int b, int[] cells) {
+        int k = cells.length;
+        if (indexOf(cells, blank) < 0) {
+            moveBlank(cells[k - 1], -1);
+        }
+        locked[pos[a]] = false;
+        locked[pos[b]] = false;
+
+        int start = (indexOf(cells, pos[a]) * k + indexOf(cells, pos[b])) * k + indexOf(cells, blank);
+        int goal = indexOf(cells, a) * k + indexOf(cells, b);
+        int[] from = new int[k * k * k];
+        Arrays.fill(from, -1);
+        from[start] = start;
+        int[] q = new int[k * k * k];
+        int head = 0;
+        int tail = 0;
+        q[tail++] = start;
+        int end = -1;
+        while (head < tail) {
+            int state = q[head++];
+            if (state / k == goal) {
+                end = state;
+                break;
+            }
+            int ia = state / (k * k);
+            int ib = state / k % k;
+            int iz = state % k;
+            for (int j = 0; j < k; j++) {
+                if (!adjacent(cells[iz], cells[j])) continue;
+                int na = (ia == j) ? iz : ia;
+                int nb = (ib == j) ? iz : ib;
+                int next = (na * k + nb) * k + j;
+                if (from[next] >= 0) continue;
+                from[next] = state;
+                q[tail++] = next;
+            }
+        }
+        if (end < 0) {
+            throw new IllegalStateException("No way to finish the line");
+        }
+
+        // Walk the blank's path back, then replay it forwards
+        int length = 0;
+        for (int state = end; state != start; state = from[state]) {
+            q[length++] = cells[state % k];
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            step(q[i]);
+        }
+        locked[a] = true;
+        locked[b] = true;
+    }
+
+    private static int indexOf(int[] cells, int cell) {
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] == cell) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean adjacent(int x, int y) {
+        return Math.abs(x / n - y / n) + Math.abs(x % n - y % n) == 1;
+    }
+
+    /*
+     * Turns the last 2 x 2 square until it is solved. Three
+     * tiles can only be turned three ways, so if it isn't solved
+     * by then, the board wasn't solvable.
+     */
+    private void solveSquare() {
+        int corner = m * n - 1;
+        moveBlank(corner, -1);
+        int[] cycle = {corner - n, corner - n - 1, corner - 1, corner};
+        for (int turn = 0; turn < 3 && !square(); turn++) {
+            for (int cell : cycle) {
+                step(cell);
+            }
+        }
+    }
+
+    private boolean square() {
+        int corner = m * n - 1;
+        return grid[corner - n - 1] == corner - n - 1
+            && grid[corner - n] == corner - n
+            && grid[corner - 1] == corner - 1;
+    }
+
+    /*
+     * Walks the given tile to the given cell through cells that
+     * aren't locked.
+     */
+    private void place(int tile, int target) {
+        while (pos[tile] != target) {
+            int at = pos[tile];
+            int next = toward(at, target);
+            moveBlank(next, at);
+            step(at);
+        }
+    }
+
+    /*
+     * Returns the neighbour of at a tile should go to next on its
+     * way to target: across first and then up or down, or the
+     * other way round if that path is blocked.
+     */
+    private int toward(int at, int target) {
+        int r = at / n;
+        int c = at % n;
+        int across = (c < target % n) ? at + 1 : at - 1;
+        int down = (r < target / n) ? at + n : at - n;
+        if (c == target % n) {
+            return down;
+        }
+        if (r == target / n) {
+            return across;
+        }
+        if (!blocked(at, target, true)) {
+            return across;
+        }
+        return down;
+    }
+
+    /*
+     * Returns true if the path from at to target, going across
+     * first if across is true, crosses a locked cell.
+     */
+    private boolean blocked(int at, int target, boolean across) {
+        int r = at / n;
+        int c = at % n;
+        int tr = target / n;
+        int tc = target % n;
+        int turn = across ? r * n + tc : tr * n + c;
+        return blocked(at, turn) || blocked(turn, target);
+    }
+
+    /*
+     * Returns true if the straight line from a to b crosses
+     * a locked cell.
+     */
+    private boolean blocked(int a, int b) {
+        int d = (a / n == b / n) ? 1 : n;
+        if (b < a) {
+            d = -d;
+        }
+        for (int i = a; i != b; i += d) {
+            if (locked[i + d]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Moves the blank to the given cell without passing through
+     * locked cells or the cell avoid. The blank heads straight
+     * there while it can, and searches for a way round otherwise.
+     */
+    private void moveBlank(int target, int avoid) {
+        while (blank != target) {
+            int r = blank / n;
+            int c = blank % n;
+            int next = -1;
+            if (r != target / n) {
+                next = (r < target / n) ? blank + n : blank - n;
+            }
+            if (next < 0 || !free(next, avoid)) {
+                next = -1;
+                if (c != target % n) {
+                    next = (c < target % n) ? blank + 1 : blank - 1;
+                }
+            }
+            if (next < 0 || !free(next, avoid)) {
+                route(target, avoid);
+                return;
+            }
+            step(next);
+        }
+    }
+
+    private boolean free(int cell, int avoid) {
+        return cell != avoid && !locked[cell];
+    }
+
+    /*
+     * Moves the blank to the given cell along a shortest path
+     * round locked cells and the cell avoid.
+     */
+    private void route(int target, int avoid) {
+        stamp++;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = blank;
+        seen[blank] = stamp;
+        while (head < tail && seen[target] != stamp) {
+            int cell = queue[head++];
+            int r = cell / n;
+            int c = cell % n;
+            for (int k = 0; k < 4; k++) {
+                int next;
+                if (k == 0 && r > 0) {
+                    next = cell - n;
+                } else if (k == 1 && r < m - 1) {
+                    next = cell + n;
+                } else if (k == 2 && c > 0) {
+                    next = cell - 1;
+                } else if (k == 3 && c < n - 1) {
+                    next = cell + 1;
+                } else {
+                    continue;
+                }
+                if (seen[next] == stamp || !free(next, avoid)) continue;
+                seen[next] = stamp;
+                prev[next] = cell;
+                queue[tail++] = next;
+            }
+        }
+        if (seen[target] != stamp) {
+            throw new IllegalStateException("No way round for the blank");
+        }
+
+        // Walk the path back, then replay it forwards
+        int length = 0;
+        for (int cell = target; cell != blank; cell = prev[cell]) {
+            queue[length++] = cell;
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            step(queue[i]);
+        }
+    }
+
+    /*
+     * Slides the tile at the given cell, next to the blank,
+     * into the blank.
+     */
+    private void step(int cell) {
+        Move mv;
+        if (cell == blank + n) {
+            mv = Move.U;
+        } else if (cell == blank - n) {
+            mv = Move.D;
+        } else if (cell == blank + 1) {
+            mv = Move.L;
+        } else {
+            mv = Move.R;
+        }
+
+        int tile = grid[cell];
+        grid[blank] = tile;
+        pos[tile] = blank;
+        grid[cell] = m * n - 1;
+        pos[m * n - 1] = cell;
+        blank = cell;
+
+        explored++;
+        if (!moves.isEmpty() && moves.peekLast() == mv.inverse()) {
+            moves.pollLast();
+        } else {
+            moves.addLast(mv);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package player;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+
+import puzzle.AbstractPuzzle;
+import puzzle.Move;
+
+import util.SolutionCache;
+
+/*
+ * Represents a program that solves the n-puzzle by searching
+ * for the whole sequence of moves first, and then replaying it.
+ * A search that gives up leaves no moves, or, for players that
+ * can, the best moves found so far.
+ */
+public abstract class SearchPlayer extends AbstractPlayer {
+
+    protected Deque<Move> moves;
+    protected double explored;
+    protected double sol;
+    private Move[] solution = new Move[0];
+    private SolutionCache cache;
+    private boolean exact;
+
+    public SearchPlayer(AbstractPuzzle puzzle) {
+        super(puzzle);
+        moves = new ArrayDeque<Move>();
+    }
+
+    @Override
+    public void solve() {
+        explored = 0;
+        search();
+        sol = moves.size();
+        solution = moves.toArray(new Move[moves.size()]);
+        while (!moves.isEmpty()) {
+            puzzle.inPlaceMove(moves.pop());
+        }
+    }
+
+    @Override
+    public void step() {
+        if (moves.isEmpty()) {
+            explored = 0;
+            search();
+            sol = moves.size();
+            solution = moves.toArray(new Move[moves.size()]);
+            if (moves.isEmpty()) {
+                return;
+            }
+        }
+        puzzle.inPlaceMove(moves.pop());
+    }
+
+    @Override
+    public HashMap<String, Double> stats() {
+        HashMap<String, Double> stats = new HashMap<String, Double>(); 
+        stats.put("Solution length:      ", sol);
+        stats.put("Total nodes explored: ", explored);
+        stats.put("Timed out:            ", timedOut() ? 1.0 : 0.0);
+        return stats;
+    }
+
+    /*
+     * Has the player look for the puzzle in the given cache before
+     * searching. If exact, the player's solutions are shortest, and
+     * are stored in the cache when it finishes in time.
+     */
+    void setCache(SolutionCache cache, boolean exact) {
+        this.cache = cache;
+        this.exact = exact;
+    }
+
+    /*
+     * Runs the search, timing it in the metrics. Players that
+     * don't count nodes in the metrics as they go have their
+     * total filled in at the end.
+     */
+    private void search() {
+        metrics.start();
+        Move[] hit = (cache == null) ? null : cache.get(puzzle);
+        if (hit != null) {
+            for (Move mv : hit) {
+                moves.addLast(mv);
+            }
+            metrics.stop();
+            return;
+        }
+        getMoves();
+        if (exact && !moves.isEmpty() && !timedOut()) {
+            cache.put(puzzle, moves.toArray(new Move[moves.size()]));
+        }
+        long missing = (long) explored - metrics.getExpanded();
+        if (missing > 0) {
+            metrics.expanded(missing);
+        }
+        metrics.stop();
+    }
+
+    /*
+     * Returns the moves found by the last search, in the order
+     * they were played. The array must not be changed.
+     */
+    public Move[] solution() {
+        return solution;
+    }
+
+    /*
+     * Searches from the current state of the puzzle, and fills
+     * moves with the solution in the order to play it.
+     */
+    protected abstract void getMoves();
+}
@@ -1,20 +1,42 @@
 package puzzle;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 /*
  * A sliding puzzle game.
  */
 public abstract class AbstractPuzzle {
 
+    private static final ConcurrentHashMap<Long, Move[][]> TABLES =
+        new ConcurrentHashMap<Long, Move[][]>();
+
     protected int m;
     protected int n;
+    protected int blank;
+    protected Move[][] table;
 
     /*
      * Randomizes this puzzle to a solvable configuration
      * in the given number of moves.
      */
-    public abstract void randomize(int moves);
+    public void randomize(int moves) {
+        randomize(moves, new Random());
+    }
+
+    /*
+     * Randomizes this puzzle in the given number of moves,
+     * drawn from the given source so runs can be reproduced.
+     */
+    public void randomize(int moves, Random r) {
+        for (int i = 0; i < moves; i++) {
+            Move[] next = successors();
+            inPlaceMove(next[r.nextInt(next.length)]);
+        }
+    }
 
     /*
      * Moves this AbstractPuzzle in place. Returns true
@@ -29,10 +51,64 @@ public abstract class AbstractPuzzle {
      */
     public abstract AbstractPuzzle move(Move m);
 
+    /*
+     * Returns true if the given move can be made from
+     * the current position of the blank.
+     */
+    public boolean canMove(Move mv) {
+        switch (mv) {
+            case U:
+                return blank < (m - 1) * n;
+            case D:
+                return blank >= n;
+            case L:
+                return blank % n < n - 1;
+            case R:
+                return blank % n > 0;
+            default:
+                return false;
+        }
+    }
+
     /*
      * Returns an array of this board's current valid moves.
      */
-    public abstract List<Move> validMoves();
+    public List<Move> validMoves() {
+        return new ArrayList<Move>(Arrays.asList(successors()));
+    }
+
+    /*
+     * Returns this board's current valid moves, always in the
+     * same order, without allocating. The array is shared by
+     * every board of this size and must not be modified.
+     */
+    public Move[] successors() {
+        return table[blank];
+    }
+
+    /*
+     * Returns the successor table for m x n boards: the valid
+     * moves for each index of the blank. Tables are built once
+     * per size and shared.
+     */
+    protected static Move[][] successors(int m, int n) {
+        Long key = ((long) m << 32) | n;
+        Move[][] t = TABLES.get(key);
+        if (t != null) {
+            return t;
+        }
+        t = new Move[m * n][];
+        for (int i = 0; i < m * n; i++) {
+            ArrayList<Move> moves = new ArrayList<Move>();
+            if (i < (m - 1) * n) moves.add(Move.U);
+            if (i >= n) moves.add(Move.D);
+            if (i % n < n - 1) moves.add(Move.L);
+            if (i % n > 0) moves.add(Move.R);
+            t[i] = moves.toArray(new Move[moves.size()]);
+        }
+        Move[][] prev = TABLES.putIfAbsent(key, t);
+        return (prev == null) ? t : prev;
+    }
 
     /*
      * Returns true if solved.
@@ -42,11 +118,144 @@ public abstract class AbstractPuzzle {
     /*
      * Returns this array's size as an array [m, n].
      */
-    public abstract int[] size();
+    public int[] size() {
+        return new int[] {m, n};
+    }
+
+    /*
+     * Returns m, the number of rows, without allocating.
+     */
+    public int rows() {
+        return m;
+    }
+
+    /*
+     * Returns n, the number of columns, without allocating.
+     */
+    public int cols() {
+        return n;
+    }
+
+    /*
+     * Returns the index of the blank, counted row-major
+     * from the top-left.
+     */
+    public int blank() {
+        return blank;
+    }
+
+    /*
+     * Returns the index the blank held before the given move,
+     * assuming that move was the last one made. This is where
+     * the tile it slid now sits.
+     */
+    public int previousBlank(Move mv) {
+        return blank - delta(mv);
+    }
 
     /*
      * Returns the tile at (x, y), indexed from top-left.
      * If tile doesn't exist, returns -1.
      */
     public abstract int get(int i, int j);
+
+    /*
+     * Returns the number of longs in this board's packed
+     * encoding. See word(int).
+     */
+    public int words() {
+        int per = 64 / bits(m * n);
+        return (m * n + per - 1) / per;
+    }
+
+    /*
+     * Returns the ith long of this board's packed encoding.
+     * Tiles are stored row-major, bits(m * n) bits apiece,
+     * lowest bits first, and never straddle two longs, so
+     * any two implementations of the same board agree.
+     */
+    public long word(int i) {
+        int size = m * n;
+        int bits = bits(size);
+        int per = 64 / bits;
+        long word = 0;
+        for (int j = i * per, k = 0; j < size && k < per; j++, k++) {
+            word |= (long) get(j % n, j / n) << (bits * k);
+        }
+        return word;
+    }
+
+    /*
+     * Returns the number of bits used to store each tile
+     * of a board with the given number of tiles.
+     */
+    protected static int bits(int size) {
+        return Math.max(4, 32 - Integer.numberOfLeadingZeros(size - 1));
+    }
+
+    /*
+     * Helper method for decoding move instructions into
+     * the offset of the tile that slides into the blank.
+     */
+    protected int delta(Move mv) {
+        switch (mv) {
+            case D:
+                return -n;
+            case U:
+                return +n;
+            case L:
+                return 1;
+            case R:
+                return -1;
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder sb = new StringBuilder();
+
+        // Horizontal border
+        StringBuilder hborder = new StringBuilder();
+        for (int i = 0; i < 6 * n + 1; i++) {
+            hborder.append("-");
+        }
+        hborder.append("\n");
+
+        // Horizontal spacer
+        StringBuilder hspacer = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            hspacer.append("|     ");
+        }
+        hspacer.append("|\n");
+
+        for (int i = 0; i < m * n; i++) {
+
+            if (i % n == 0) {
+                sb.append(hborder);
+                sb.append(hspacer);
+            }
+
+            int tile = get(i % n, i / n);
+            if (tile == m * n - 1) {
+                sb.append("|     ");
+            } else if (tile < 10) {
+                sb.append("|  " + tile + "  ");
+            } else if (tile < 100) {
+                sb.append("|  " + tile + " ");
+            } else {
+                sb.append("| " + tile + " ");
+            }
+
+            if (i % n == n - 1) {
+                sb.append("|\n");
+                sb.append(hspacer);
+            }
+        }
+
+        sb.append(hborder);
+        return sb.toString();
+    }
 }
@@ -1,9 +1,6 @@
 package puzzle;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
 
 /*
  * A sliding puzzle implemented using arrays.
@@ -11,7 +8,6 @@ import java.util.List;
 public class ArrayPuzzle extends AbstractPuzzle {
 
     private int[] grid;
-    private int blank;
     private int size;
 
     public ArrayPuzzle(int m, int n) {
@@ -23,6 +19,7 @@ public class ArrayPuzzle extends AbstractPuzzle {
             grid[i] = i;
         }
         blank = size - 1;
+        table = successors(m, n);
     }
 
     public ArrayPuzzle(int m, int n, int[] grid, int blank) {
@@ -31,80 +28,45 @@ public class ArrayPuzzle extends AbstractPuzzle {
         this.size = m * n;
         this.grid = grid;
         this.blank = blank;
+        this.table = successors(m, n);
     }
 
-    @Override
-    public int get(int x, int y) {
-        return grid[y * n + x];
-    }
-
-    @Override
-    public int[] size() {
-        return new int[] {m, n};
+    private ArrayPuzzle(ArrayPuzzle ap, int[] grid, int blank) {
+        this.m = ap.m;
+        this.n = ap.n;
+        this.size = ap.size;
+        this.table = ap.table;
+        this.grid = grid;
+        this.blank = blank;
     }
 
     @Override
-    public void randomize(int moves) {
-        for (int i = 0; i < moves; i++) {
-            inPlaceMove(validMoves().get(0));
-        } 
+    public int get(int x, int y) {
+        return grid[y * n + x];
     }
 
     @Override
     public boolean inPlaceMove(Move mv) {
-        try {
-            int d = delta(mv);
-            grid[blank] = grid[blank + d];
-            grid[blank + d] = size - 1;
-            blank += d;
-            return true;
-        } catch (ArrayIndexOutOfBoundsException e) {
-            return false; 
+        if (!canMove(mv)) {
+            return false;
         }
+        int d = delta(mv);
+        grid[blank] = grid[blank + d];
+        grid[blank + d] = size - 1;
+        blank += d;
+        return true;
     }
 
     @Override
     public ArrayPuzzle move(Move mv) {
-        int[] newGrid = Arrays.copyOf(grid, grid.length);
-        int newBlank = blank;
-        try {
-            int d = delta(mv);
-            newGrid[blank] = newGrid[blank + d];
-            newGrid[blank + d] = size - 1;
-            newBlank = blank + d;
-            return new ArrayPuzzle(m, n, newGrid, newBlank);
-        } catch (ArrayIndexOutOfBoundsException e) {
+        if (!canMove(mv)) {
             return null;
         }
-    }
-
-    /*
-     * Private helper method for decoding move instructions.
-     */
-    private int delta(Move mv) {
-        switch (mv) {
-            case D:
-                return -n;
-            case U: 
-                return +n;
-            case L:
-                return 1;
-            case R:
-                return -1;
-            default:
-                return 0;
-        } 
-    }
-
-    @Override
-    public List<Move> validMoves() {
-        ArrayList<Move> moves = new ArrayList<Move>();
-        if (blank < (m - 1) * n) moves.add(Move.U);
-        if (blank >= n) moves.add(Move.D);
-        if (blank % n > 0) moves.add(Move.R);
-        if (blank % n < n - 1) moves.add(Move.L);
-        Collections.shuffle(moves);
-        return moves; 
+        int[] newGrid = Arrays.copyOf(grid, grid.length);
+        int d = delta(mv);
+        newGrid[blank] = newGrid[blank + d];
+        newGrid[blank + d] = size - 1;
+        return new ArrayPuzzle(this, newGrid, blank + d);
     }
 
     @Override
@@ -126,12 +88,12 @@ public class ArrayPuzzle extends AbstractPuzzle {
         ArrayPuzzle ap = (ArrayPuzzle) o;
 
         if (ap.m != m || ap.n != n) {
-            return false; 
+            return false;
         }
 
         for (int i = 0; i < m * n; i++) {
             if (grid[i] != ap.grid[i]) {
-                return false; 
+                return false;
             }
         }
 
@@ -146,51 +108,4 @@ public class ArrayPuzzle extends AbstractPuzzle {
         }
         return sum;
     }
-
-    @Override
-    public String toString() {
-
-        StringBuilder sb = new StringBuilder();
-
-        // Horizontal border
-        StringBuilder hborder = new StringBuilder();
-        for (int i = 0; i < 6 * n + 1; i++) {
-            hborder.append("-");
-        }
-        hborder.append("\n");
-
-        // Horizontal spacer
-        StringBuilder hspacer = new StringBuilder();
-        for (int i = 0; i < n; i++) {
-            hspacer.append("|     ");
-        }
-        hspacer.append("|\n");
-
-        for (int i = 0; i < m * n; i++) {
-
-            if (i % n == 0) {
-                sb.append(hborder);
-                sb.append(hspacer);
-            }
-
-            if (grid[i] == m * n - 1) {
-                sb.append("|     ");
-            } else if (grid[i] < 10) {
-                sb.append("|  " + grid[i] + "  ");
-            } else if (grid[i] < 100) {
-                sb.append("|  " + grid[i] + " ");
-            } else {
-                sb.append("| " + grid[i] + " ");
-            }
-
-            if (i % n == n - 1) {
-                sb.append("|\n");
-                sb.append(hspacer);
-            }
-        }
-
-        sb.append(hborder);
-        return sb.toString();
-    }
-
 }
@@ -0,0 +1,253 @@
+package puzzle;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+import player.AbstractPlayer;
+import player.SearchPlayer;
+
+/*
+ * Solves a file of puzzles one at a time, writing each result
+ * to another file as soon as it is found, so files of any length
+ * stream through in constant memory.
+ *
+ * Puzzles are read in one of three formats:
+ *
+ *     text    one puzzle per line, its tiles in row-major order
+ *             separated by spaces, with m * n - 1 as the blank
+ *     korf    the same, but numbered the way Korf's 100 instances
+ *             are, with 0 as the blank and the goal's blank in the
+ *             top left corner
+ *     binary  one record per puzzle, one byte per tile as in text,
+ *             or two big-endian bytes per tile if m * n > 256
+ *
+ * Text lines may start with an extra number, which is taken as
+ * an instance number and ignored, and lines starting with # are
+ * skipped. A line with the wrong number of tokens, or a token
+ * that isn't a number, gets a result of -1, like a board that
+ * can't be solved. Binary files are memory-mapped.
+ *
+ * Korf's goal is ours turned by 180 degrees, so a korf puzzle
+ * is turned the same way to solve it, and its moves are turned
+ * back, U and D and L and R swapping, before they're written.
+ *
+ * Each result line holds the instance's position in the file,
+ * the solution's length (-1 if the puzzle can't be solved), the
+ * nodes explored, the time taken in milliseconds, 1 if the player
+ * gave up or else 0, and the moves.
+ */
+public class Batch {
+
+    // Bytes of a binary file mapped at once
+    private static final int WINDOW = 1 << 26;
+
+    private int m;
+    private int n;
+    private String flag;
+    private String format;
+
+    /*
+     * Creates a batch of m x n puzzles in the given format,
+     * solved with the player selected by the given flag of Main.
+     */
+    public Batch(int m, int n, String flag, String format) {
+        if (!format.equals("text") && !format.equals("korf") && !format.equals("binary")) {
+            throw new IllegalArgumentException("Unknown batch format: " + format);
+        }
+        this.m = m;
+        this.n = n;
+        this.flag = flag;
+        this.format = format;
+    }
+
+    /*
+     * Solves every puzzle in the input file, writing a line for
+     * each to the output file. Returns the number read.
+     */
+    public long run(Path input, Path output) throws IOException {
+
+        Source source = format.equals("binary") ? new BinarySource(input) : new TextSource(input);
+        boolean korf = format.equals("korf");
+        long count = 0;
+
+        try (BufferedWriter out = Files.newBufferedWriter(output, StandardCharsets.US_ASCII)) {
+            out.write("# instance length nodes ms timedout moves");
+            out.newLine();
+
+            int[] tiles;
+            while ((tiles = source.next()) != null) {
+                if (korf) {
+                    tiles = rotate(tiles);
+                }
+                StringBuilder line = new StringBuilder();
+                line.append(++count).append(' ');
+
+                // A bad board is recorded rather than ending the batch
+                if (!PuzzleFactory.isSolvable(m, n, tiles)) {
+                    out.write(line.append("-1 0 0.000 0 -").toString());
+                    out.newLine();
+                    continue;
+                }
+
+                AbstractPuzzle p = PuzzleFactory.getPuzzle(m, n, tiles);
+                AbstractPlayer player = Main.getPlayer(flag, p);
+                Main.limit(player);
+                Main.watch(player, "instance-" + count);
+                double time = Main.timedSolve(player);
+                Main.report(player, "instance-" + count);
+
+                Double length = player.stats().get("Solution length:      ");
+                Double nodes = player.stats().get("Total nodes explored: ");
+                line.append((length == null) ? 0 : length.longValue()).append(' ')
+                    .append((nodes == null) ? 0 : nodes.longValue()).append(' ')
+                    .append(String.format(Locale.ROOT, "%.3f", time / 1e6)).append(' ')
+                    .append(player.timedOut() ? 1 : 0).append(' ');
+                if (player instanceof SearchPlayer) {
+                    for (Move mv : ((SearchPlayer) player).solution()) {
+                        line.append(korf ? mv.inverse() : mv);
+                    }
+                } else {
+                    line.append('-');
+                }
+                out.write(line.toString());
+                out.newLine();
+            }
+        } finally {
+            source.close();
+        }
+        return count;
+    }
+
+    /*
+     * Turns korf tiles into ours, by turning the board and
+     * renumbering every tile, blank included, from the other end.
+     */
+    private int[] rotate(int[] tiles) {
+        int size = tiles.length;
+        int[] turned = new int[size];
+        for (int i = 0; i < size; i++) {
+            turned[size - 1 - i] = size - 1 - tiles[i];
+        }
+        return turned;
+    }
+
+    /*
+     * A stream of puzzles' tiles, read one puzzle at a time.
+     */
+    private interface Source {
+
+        /*
+         * Returns the tiles of the next puzzle, or null at the
+         * end of the file.
+         */
+        int[] next() throws IOException;
+
+        void close() throws IOException;
+    }
+
+    /*
+     * Reads puzzles from a text file, one per line.
+     */
+    private class TextSource implements Source {
+
+        private BufferedReader in;
+
+        TextSource(Path input) throws IOException {
+            in = Files.newBufferedReader(input, StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public int[] next() throws IOException {
+            String s;
+            while ((s = in.readLine()) != null) {
+                s = s.trim();
+                if (s.isEmpty() || s.startsWith("#")) continue;
+
+                String[] words = s.split("\\s+");
+                int size = m * n;
+                int skip = words.length - size;
+                int[] tiles = new int[size];
+
+                // A line that isn't a board is recorded as unsolvable
+                if (skip != 0 && skip != 1) {
+                    Arrays.fill(tiles, -1);
+                    return tiles;
+                }
+                for (int i = 0; i < size; i++) {
+                    try {
+                        tiles[i] = Integer.parseInt(words[skip + i]);
+                    } catch (NumberFormatException e) {
+                        tiles[i] = -1;
+                    }
+                }
+                return tiles;
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /*
+     * Reads fixed-size puzzle records from a binary file, mapping
+     * a window of whole records at a time.
+     */
+    private class BinarySource implements Source {
+
+        private FileChannel channel;
+        private ByteBuffer buffer;
+        private long position;
+        private long length;
+        private int width;
+        private int record;
+
+        BinarySource(Path input) throws IOException {
+            channel = FileChannel.open(input, StandardOpenOption.READ);
+            length = channel.size();
+            width = (m * n > 256) ? 2 : 1;
+            record = width * m * n;
+            if (length % record != 0) {
+                channel.close();
+                throw new IOException("File size " + length + " is not a multiple of " + record + " bytes");
+            }
+            buffer = ByteBuffer.allocate(0);
+        }
+
+        @Override
+        public int[] next() throws IOException {
+            if (!buffer.hasRemaining()) {
+                if (position == length) {
+                    return null;
+                }
+                long size = Math.min(length - position, WINDOW / record * (long) record);
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                position += size;
+                buffer = map;
+            }
+
+            int[] tiles = new int[m * n];
+            for (int i = 0; i < tiles.length; i++) {
+                tiles[i] = (width == 1) ? buffer.get() & 0xff : buffer.getShort() & 0xffff;
+            }
+            return tiles;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -1,39 +1,96 @@
 package puzzle;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import player.AbstractPlayer;
 import player.PlayerFactory;
 
+import util.SolutionCache;
+
 public class Main {
 
+    private static final String TIME = "Time (ns):            ";
+
+    // Where report() writes metrics, opened on first use
+    private static PrintWriter metrics;
+
     public static void usage() {
         System.out.println("Usage: java -jar N-puzzle.jar <M> <N> <MOVES> <PLAYER> <AVG> <RATE>"); 
+        System.out.println("   or: java -jar N-puzzle.jar batch <M> <N> <PLAYER> <INPUT> <OUTPUT>");
         System.out.println("<M> x <N> is the dimension of puzzle to create.");
-        System.out.println("<MOVES> is the number of moves used to randomize the puzzle.");
+        System.out.println("<MOVES> is the number of moves used to randomize the puzzle,");
+        System.out.println("\tor -1 for a uniformly random solvable puzzle.");
         System.out.println("<PLAYER> is one of :");
         System.out.println("\t-b   : Naive breadth-first search");
+        System.out.println("\t-bb  : Bidirectional breadth-first search");
         System.out.println("\t-h   : Manual");
         System.out.println("\t-i   : Naive iterative deepening search");
         System.out.println("\t-mi  : IDA* search, Manhattan distance");
         System.out.println("\t-ma  : A* search, Manhattan distance");
         System.out.println("\t-fma : Fast but non-optimal A* search,  Manhattan distance");
+        System.out.println("\t-mab : Bucketed A* search, Manhattan distance");
+        System.out.println("\t-mwa : Weighted A* search, Manhattan distance");
         System.out.println("\t-li  : IDA* search, Manhattan distance + linear interference");
         System.out.println("\t-la  : A* search, Manhattan distance + linear interference");
         System.out.println("\t-fla : Fast but non-optimal A* search,  Manhattan distance + linear interference");
+        System.out.println("\t-lab : Bucketed A* search, Manhattan distance + linear interference");
+        System.out.println("\t-lwa : Weighted A* search, Manhattan distance + linear interference");
+        System.out.println("\t-ara : Anytime repairing A* search, Manhattan distance + linear interference");
+        System.out.println("\t-mpi : Parallel IDA* search, Manhattan distance");
+        System.out.println("\t-lpi : Parallel IDA* search, Manhattan distance + linear interference");
+        System.out.println("\t-mha : Hash-distributed A* search, Manhattan distance");
+        System.out.println("\t-lha : Hash-distributed A* search, Manhattan distance + linear interference");
         System.out.println("\t-oa  : A* search, out-of-place");
         System.out.println("\t-oi  : IDA* search, out-of-place");
+        System.out.println("\t-pa  : A* search, additive pattern database");
+        System.out.println("\t-pi  : IDA* search, additive pattern database");
+        System.out.println("\t-ppi : Parallel IDA* search, additive pattern database");
+        System.out.println("\t-pha : Hash-distributed A* search, additive pattern database");
+        System.out.println("\t-wa  : A* search, walking distance");
+        System.out.println("\t-wi  : IDA* search, walking distance");
+        System.out.println("\t-rr  : Row-by-row reduction (any size, not optimal)");
         System.out.println("\t-r   : Random");
         System.out.println("<AVG> is one of the following:");
         System.out.println("\t0 to do a step-by-step solve, with pretty-printing");
         System.out.println("\tn to average the solving time taken over n trials");
         System.out.println("<RATE> is the number of steps to display per second for automated solving.");
         System.out.println("Only required if AVG = 0.");
+        System.out.println("Pass -Dpdb=<GROUPS> (e.g. 6-6-3) and -Dpdb.dir=<DIR> to configure pattern databases.");
+        System.out.println("Pass -Dthreads=<THREADS> to run that many trials at once when AVG > 0.");
+        System.out.println("Pass -Dworkers=<WORKERS> to set the number of hash-distributed A* threads.");
+        System.out.println("Pass -Dbudget=<NODES> (or bytes, e.g. 512m) to bound the memory of A* searches.");
+        System.out.println("Pass -Dtimeout=<MS> to give up on each puzzle after that many milliseconds.");
+        System.out.println("Pass -Dweight=<WEIGHT> to set the weight of weighted and anytime A* searches.");
+        System.out.println("Pass -Dtt=<ENTRIES> to give IDA* searches a transposition table (off by default).");
+        System.out.println("Pass -Dcache=<ENTRIES> to reuse shortest solutions across puzzles, keeping that many boards.");
+        System.out.println("Pass -Dformat=<text|korf|binary> to set the format of batch input files.");
+        System.out.println("Pass -Dmetrics=<FILE> to write each search's metrics to a file as JSON lines,");
+        System.out.println("\tand -Djmx=true to watch them over JMX while it runs.");
+        System.out.println("Pass -Dseed=<SEED> to the JVM to make the randomized puzzles reproducible.");
     }
 
     public static void main (String[] args) {
 
+        if (args.length > 0 && args[0].equals("batch")) {
+            batch(args);
+            return;
+        }
+
         int m;
         int n;
         int moves;
@@ -53,57 +110,27 @@ public class Main {
             return;
         }
 
-        AbstractPuzzle p = new ArrayPuzzle(m, n);
-        AbstractPlayer player;
+        Long seed = Long.getLong("seed");
+        Random random = (seed == null) ? new Random() : new Random(seed);
+        AbstractPuzzle p = (trials == 0)
+            ? scramble(m, n, moves, random)
+            : PuzzleFactory.getPuzzle(m, n);
 
-        switch (args[3]) {
-            case "-h": 
-                player = PlayerFactory.getHuman(p);
-                break;
-            case "-b":
-                player = PlayerFactory.getNaiveBFS(p);
-                break;
-            case "-la":
-                player = PlayerFactory.getManhattanConflictBFS(p);
-                break;
-            case "-fla":
-                player = PlayerFactory.getFastManhattanConflictBFS(p);
-                break;
-            case "-oa":
-                player = PlayerFactory.getOutOfPlaceBFS(p);
-                break;
-            case "-ma":
-                player = PlayerFactory.getManhattanBFS(p);
-                break;
-            case "-fma":
-                player = PlayerFactory.getFastManhattanBFS(p);
-                break;
-            case "-i":
-                player = PlayerFactory.getNaiveIDS(p);
-                break;
-            case "-li":
-                player = PlayerFactory.getManhattanConflictIDS(p);
-                break;
-            case "-mi":
-                player = PlayerFactory.getManhattanIDS(p);
-                break;
-            case "-oi":
-                player = PlayerFactory.getOutOfPlaceIDS(p);
-                break;
-            case "-r":
-                player = PlayerFactory.getRandom(p);
-                break;
-            default:
-                usage();
-                return;
+        // Made up front even for batches, so that any tables
+        // are built once before trials start in parallel
+        AbstractPlayer player = getPlayer(args[3], p);
+        if (player == null) {
+            usage();
+            return;
         }
 
         if (trials == 0) {
 
-            p.randomize(moves);
             System.out.println(p);
+            limit(player);
+            watch(player, "step");
 
-            while (!p.solved()) {
+            while (!p.solved() && !player.timedOut()) {
                 player.step(); 
                 if (!args[3].equals("-p")) {
                     try {
@@ -116,18 +143,43 @@ public class Main {
             for (String key : player.stats().keySet()) {
                 System.out.println(key + player.stats().get(key)); 
             }
+            report(player, "step");
         
         } else {
 
+            // Draw every trial's seed up front, so each trial gets
+            // the same puzzle however the threads are scheduled
+            long[] seeds = new long[trials];
+            for (int i = 0; i < trials; i++) {
+                seeds[i] = random.nextLong();
+            }
+
+            int threads = Integer.getInteger("threads", 1);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<HashMap<String, Double>>> results =
+                new ArrayList<Future<HashMap<String, Double>>>();
+            for (int i = 0; i < trials; i++) {
+                results.add(pool.submit(trial(m, n, moves, args[3], seeds[i], i)));
+            }
+            pool.shutdown();
+
             double total = 0;
+            double max = 0;
             HashMap<String, Double> stats = new HashMap<String, Double>();
 
-            for (int i = 0; i < trials; i++) {
-                p.randomize(moves);
-                System.out.println("Starting trial " + (i + 1) + "...");
-                total += timedSolve(player); 
-                for (String key : player.stats().keySet()) {
-                    Double val = player.stats().get(key);
+            for (Future<HashMap<String, Double>> result : results) {
+                HashMap<String, Double> trial;
+                try {
+                    trial = result.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    pool.shutdownNow();
+                    throw new RuntimeException(e);
+                }
+                double time = trial.remove(TIME);
+                total += time;
+                max = Math.max(max, time);
+                for (String key : trial.keySet()) {
+                    Double val = trial.get(key);
                     if (stats.containsKey(key)) {
                         stats.put(key, stats.get(key) + val);
                     } else {
@@ -137,15 +189,217 @@ public class Main {
             }
 
             System.out.println("Average time (sec):   " + (total / 1e9 / trials));
+            System.out.println("Maximum time (sec):   " + (max / 1e9));
             for (String key : stats.keySet()) {
                 System.out.println(key + stats.get(key) / trials); 
             }
+            printCache();
+        }
+    }
+
+    /*
+     * Solves every puzzle in an input file, streaming the results
+     * to an output file.
+     */
+    private static void batch(String[] args) {
+        Batch batch;
+        Path input;
+        Path output;
+        try {
+            int m = Integer.parseInt(args[1]);
+            int n = Integer.parseInt(args[2]);
+            if (getPlayer(args[3], PuzzleFactory.getPuzzle(m, n)) == null) {
+                usage();
+                return;
+            }
+            batch = new Batch(m, n, args[3], System.getProperty("format", "text"));
+            input = Paths.get(args[4]);
+            output = Paths.get(args[5]);
+        } catch (Exception e) {
+            usage();
+            return;
+        }
+
+        long start = System.nanoTime();
+        long count;
+        try {
+            count = batch.run(input, output);
+        } catch (IOException e) {
+            System.err.println("Batch failed: " + e.getMessage());
+            return;
+        }
+        System.out.println("Puzzles read:         " + count);
+        System.out.println("Total time (sec):     " + (System.nanoTime() - start) / 1e9);
+        printCache();
+    }
+
+    /*
+     * Prints the solution cache's counters, if it is on.
+     */
+    private static void printCache() {
+        SolutionCache cache = PlayerFactory.getCache();
+        if (cache != null) {
+            System.out.println("Cache hits:           " + cache.getHits());
+            System.out.println("Cache misses:         " + cache.getMisses());
+            System.out.println("Cache evictions:      " + cache.getEvictions());
+        }
+    }
+
+    /*
+     * Returns a task that solves one trial on its own puzzle
+     * with its own player. The task's stats include the time
+     * taken in nanoseconds, under the key TIME.
+     */
+    private static Callable<HashMap<String, Double>> trial(
+            final int m, final int n, final int moves,
+            final String flag, final long seed, final int i) {
+
+        return new Callable<HashMap<String, Double>>() {
+            @Override
+            public HashMap<String, Double> call() {
+                AbstractPuzzle p = scramble(m, n, moves, new Random(seed));
+                AbstractPlayer player = getPlayer(flag, p);
+                System.out.println("Starting trial " + (i + 1) + "...");
+                limit(player);
+                watch(player, "trial-" + (i + 1));
+                double time = timedSolve(player);
+                report(player, "trial-" + (i + 1));
+                HashMap<String, Double> stats = player.stats();
+                stats.put(TIME, time);
+                return stats;
+            }
+        };
+    }
+
+    /*
+     * Returns an m x n puzzle scrambled by the given number of
+     * random moves, or, if moves is negative, drawn uniformly from
+     * all solvable puzzles.
+     */
+    private static AbstractPuzzle scramble(int m, int n, int moves, Random r) {
+        if (moves < 0) {
+            return PuzzleFactory.getRandomPuzzle(m, n, r);
+        }
+        AbstractPuzzle p = PuzzleFactory.getPuzzle(m, n);
+        p.randomize(moves, r);
+        return p;
+    }
+
+    /*
+     * Gives the player a deadline of -Dtimeout=<MS> milliseconds
+     * from now, if set, after which it gives up.
+     */
+    static void limit(AbstractPlayer player) {
+        long timeout = Long.getLong("timeout", 0);
+        if (timeout > 0) {
+            player.setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout));
         }
     }
 
+    /*
+     * Registers the player's metrics over JMX under the given
+     * name, if -Djmx=true, so they can be watched as it solves.
+     */
+    static void watch(AbstractPlayer player, String name) {
+        if (Boolean.getBoolean("jmx")) {
+            player.metrics().register("puzzle:type=Metrics,name=" + name);
+        }
+    }
+
+    /*
+     * Unregisters the player's metrics, and appends them as a line
+     * of JSON to the file given by -Dmetrics=<FILE>, if set.
+     */
+    static synchronized void report(AbstractPlayer player, String name) {
+        player.metrics().unregister();
+        String file = System.getProperty("metrics");
+        if (file == null) {
+            return;
+        }
+        try {
+            if (metrics == null) {
+                metrics = new PrintWriter(Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8), true);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not open metrics file: " + e.getMessage());
+            System.clearProperty("metrics");
+            return;
+        }
+        metrics.println("{\"name\":\"" + name + "\"," + player.metrics().toJson().substring(1));
+    }
+
     public static double timedSolve(AbstractPlayer ap) {
         double start = System.nanoTime();
         ap.solve();
         return System.nanoTime() - start;
     }
+
+    /*
+     * Returns the player selected by the given flag, or null
+     * if there is no such player.
+     */
+    public static AbstractPlayer getPlayer(String flag, AbstractPuzzle p) {
+        switch (flag) {
+            case "-h": 
+                return PlayerFactory.getHuman(p);
+            case "-b":
+                return PlayerFactory.getNaiveBFS(p);
+            case "-bb":
+                return PlayerFactory.getBidirectionalBFS(p);
+            case "-la":
+                return PlayerFactory.getManhattanConflictBFS(p);
+            case "-fla":
+                return PlayerFactory.getFastManhattanConflictBFS(p);
+            case "-oa":
+                return PlayerFactory.getOutOfPlaceBFS(p);
+            case "-ma":
+                return PlayerFactory.getManhattanBFS(p);
+            case "-fma":
+                return PlayerFactory.getFastManhattanBFS(p);
+            case "-mab":
+                return PlayerFactory.getManhattanBucketBFS(p);
+            case "-lab":
+                return PlayerFactory.getManhattanConflictBucketBFS(p);
+            case "-mha":
+                return PlayerFactory.getManhattanHDA(p);
+            case "-lha":
+                return PlayerFactory.getManhattanConflictHDA(p);
+            case "-i":
+                return PlayerFactory.getNaiveIDS(p);
+            case "-li":
+                return PlayerFactory.getManhattanConflictIDS(p);
+            case "-mi":
+                return PlayerFactory.getManhattanIDS(p);
+            case "-mpi":
+                return PlayerFactory.getParallelManhattanIDS(p);
+            case "-lpi":
+                return PlayerFactory.getParallelManhattanConflictIDS(p);
+            case "-oi":
+                return PlayerFactory.getOutOfPlaceIDS(p);
+            case "-pa":
+                return PlayerFactory.getPatternBFS(p);
+            case "-pi":
+                return PlayerFactory.getPatternIDS(p);
+            case "-ppi":
+                return PlayerFactory.getParallelPatternIDS(p);
+            case "-pha":
+                return PlayerFactory.getPatternHDA(p);
+            case "-wa":
+                return PlayerFactory.getWalkingDistanceBFS(p);
+            case "-wi":
+                return PlayerFactory.getWalkingDistanceIDS(p);
+            case "-rr":
+                return PlayerFactory.getReduction(p);
+            case "-mwa":
+                return PlayerFactory.getWeightedManhattanBFS(p);
+            case "-lwa":
+                return PlayerFactory.getWeightedManhattanConflictBFS(p);
+            case "-ara":
+                return PlayerFactory.getAnytimeManhattanConflictBFS(p);
+            case "-r":
+                return PlayerFactory.getRandom(p);
+            default:
+                return null;
+        }
+    }
 }
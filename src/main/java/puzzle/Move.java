@@ -2,4 +2,20 @@ package puzzle;
 
 public enum Move {
     U, D, L, R;
+
+    /*
+     * Returns the move that undoes this one.
+     */
+    public Move inverse() {
+        switch (this) {
+            case U:
+                return D;
+            case D:
+                return U;
+            case L:
+                return R;
+            default:
+                return L;
+        }
+    }
 }
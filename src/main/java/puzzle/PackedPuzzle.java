@@ -0,0 +1,117 @@
+package puzzle;
+
+/*
+ * A sliding puzzle of at most 16 tiles, packed four bits
+ * per tile into a single long. Moving, comparing and hashing
+ * boards never touches an array.
+ */
+public class PackedPuzzle extends AbstractPuzzle {
+
+    private long code;
+    private long goal;
+    private int size;
+
+    public PackedPuzzle(int m, int n) {
+        if (m * n > 16) {
+            throw new IllegalArgumentException("PackedPuzzle holds at most 16 tiles");
+        }
+        this.m = m;
+        this.n = n;
+        size = m * n;
+        for (int i = 0; i < size; i++) {
+            code |= (long) i << (4 * i);
+        }
+        goal = code;
+        blank = size - 1;
+        table = successors(m, n);
+    }
+
+    /*
+     * Creates an m x n puzzle holding the given tiles in row-major
+     * order, where tile m * n - 1 is the blank.
+     */
+    public PackedPuzzle(int m, int n, int[] tiles) {
+        this(m, n);
+        code = 0;
+        for (int i = 0; i < size; i++) {
+            code |= (long) tiles[i] << (4 * i);
+            if (tiles[i] == size - 1) {
+                blank = i;
+            }
+        }
+    }
+
+    private PackedPuzzle(PackedPuzzle pp, long code, int blank) {
+        this.m = pp.m;
+        this.n = pp.n;
+        this.size = pp.size;
+        this.goal = pp.goal;
+        this.table = pp.table;
+        this.code = code;
+        this.blank = blank;
+    }
+
+    @Override
+    public int get(int x, int y) {
+        return (int) (code >>> (4 * (y * n + x))) & 0xF;
+    }
+
+    @Override
+    public boolean inPlaceMove(Move mv) {
+        if (!canMove(mv)) {
+            return false;
+        }
+        int d = delta(mv);
+        code = swap(code, blank, blank + d);
+        blank += d;
+        return true;
+    }
+
+    @Override
+    public PackedPuzzle move(Move mv) {
+        if (!canMove(mv)) {
+            return null;
+        }
+        int d = delta(mv);
+        return new PackedPuzzle(this, swap(code, blank, blank + d), blank + d);
+    }
+
+    /*
+     * Slides the tile at index to into the blank at index from.
+     */
+    private long swap(long c, int from, int to) {
+        long x = ((c >>> (4 * to)) & 0xF) ^ (size - 1);
+        return c ^ (x << (4 * from)) ^ (x << (4 * to));
+    }
+
+    @Override
+    public boolean solved() {
+        return code == goal;
+    }
+
+    @Override
+    public int words() {
+        return 1;
+    }
+
+    @Override
+    public long word(int i) {
+        return code;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PackedPuzzle)) {
+            return false;
+        }
+
+        PackedPuzzle pp = (PackedPuzzle) o;
+        return pp.code == code && pp.m == m && pp.n == n;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = code * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
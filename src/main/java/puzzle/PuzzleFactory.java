@@ -0,0 +1,130 @@
+package puzzle;
+
+import java.util.Random;
+
+/*
+ * Class for generating puzzles.
+ */
+public class PuzzleFactory {
+
+    /*
+     * Returns a solved m x n puzzle using the most compact
+     * representation available for its size.
+     */
+    public static AbstractPuzzle getPuzzle(int m, int n) {
+        if (m * n <= 16) {
+            return new PackedPuzzle(m, n);
+        }
+        return new WidePuzzle(m, n);
+    }
+
+    /*
+     * Returns an m x n puzzle holding the given tiles in row-major
+     * order, where tile m * n - 1 is the blank, using the most compact
+     * representation available. Throws IllegalArgumentException if
+     * the tiles can't be reached from the goal.
+     */
+    public static AbstractPuzzle getPuzzle(int m, int n, int[] tiles) {
+        if (!isSolvable(m, n, tiles)) {
+            throw new IllegalArgumentException("Tiles are not a solvable " + m + " x " + n + " puzzle");
+        }
+        if (m * n <= 16) {
+            return new PackedPuzzle(m, n, tiles);
+        }
+        return new WidePuzzle(m, n, tiles);
+    }
+
+    /*
+     * Returns an m x n puzzle drawn uniformly at random from all
+     * solvable ones, in time linear in its size.
+     *
+     * The tiles are shuffled, and if the shuffle is unsolvable, the
+     * first two tiles other than the blank are swapped. That swap
+     * pairs up the solvable and unsolvable boards with the blank in
+     * any one place, so every solvable board is equally likely.
+     */
+    public static AbstractPuzzle getRandomPuzzle(int m, int n, Random r) {
+        int size = m * n;
+        int[] tiles = new int[size];
+        for (int i = 0; i < size; i++) {
+            tiles[i] = i;
+        }
+
+        // A single line only lets the blank slide along it
+        if (m == 1 || n == 1) {
+            int blank = r.nextInt(size);
+            System.arraycopy(tiles, blank, tiles, blank + 1, size - 1 - blank);
+            tiles[blank] = size - 1;
+            return getPuzzle(m, n, tiles);
+        }
+
+        for (int i = size - 1; i > 0; i--) {
+            int j = r.nextInt(i + 1);
+            int t = tiles[i];
+            tiles[i] = tiles[j];
+            tiles[j] = t;
+        }
+        if (!isSolvable(m, n, tiles)) {
+            int a = (tiles[0] == size - 1) ? 1 : 0;
+            int b = (tiles[a + 1] == size - 1) ? a + 2 : a + 1;
+            int t = tiles[a];
+            tiles[a] = tiles[b];
+            tiles[b] = t;
+        }
+        return getPuzzle(m, n, tiles);
+    }
+
+    /*
+     * Returns true if the given tiles, in row-major order with
+     * tile m * n - 1 as the blank, are an m x n puzzle that can
+     * be solved.
+     *
+     * Every move swaps the blank with a tile, which flips both the
+     * parity of the board as a permutation and the parity of the
+     * blank's distance from its goal corner. So the two parities
+     * must agree, and on boards of at least two rows and two
+     * columns, that is enough. The permutation's parity is found
+     * from its cycles in linear time.
+     */
+    public static boolean isSolvable(int m, int n, int[] tiles) {
+        int size = m * n;
+        if (m < 1 || n < 1 || tiles.length != size) {
+            return false;
+        }
+
+        boolean[] seen = new boolean[size];
+        int blank = -1;
+        for (int i = 0; i < size; i++) {
+            if (tiles[i] < 0 || tiles[i] >= size || seen[tiles[i]]) {
+                return false;
+            }
+            seen[tiles[i]] = true;
+            if (tiles[i] == size - 1) {
+                blank = i;
+            }
+        }
+
+        // A single line can't be rearranged at all
+        if (m == 1 || n == 1) {
+            for (int i = 0, k = 0; i < size; i++) {
+                if (i == blank) continue;
+                if (tiles[i] != k++) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int cycles = 0;
+        boolean[] visited = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            if (visited[i]) continue;
+            cycles++;
+            for (int j = i; !visited[j]; j = tiles[j]) {
+                visited[j] = true;
+            }
+        }
+        int distance = (m - 1 - blank / n) + (n - 1 - blank % n);
+        return (size - cycles) % 2 == distance % 2;
+    }
+}
@@ -0,0 +1,143 @@
+package puzzle;
+
+import java.util.Arrays;
+
+/*
+ * A sliding puzzle of any size, packed into an array of longs
+ * with as few bits per tile as the board allows. Used in place
+ * of PackedPuzzle for boards of more than 16 tiles.
+ */
+public class WidePuzzle extends AbstractPuzzle {
+
+    private long[] words;
+    private long[] goal;
+    private int size;
+    private int bits;
+    private int per;
+    private long mask;
+
+    public WidePuzzle(int m, int n) {
+        this.m = m;
+        this.n = n;
+        size = m * n;
+        bits = bits(size);
+        per = 64 / bits;
+        mask = (1L << bits) - 1;
+        words = new long[(size + per - 1) / per];
+        for (int i = 0; i < size; i++) {
+            words[i / per] |= (long) i << (bits * (i % per));
+        }
+        goal = Arrays.copyOf(words, words.length);
+        blank = size - 1;
+        table = successors(m, n);
+    }
+
+    /*
+     * Creates an m x n puzzle holding the given tiles in row-major
+     * order, where tile m * n - 1 is the blank.
+     */
+    public WidePuzzle(int m, int n, int[] tiles) {
+        this(m, n);
+        Arrays.fill(words, 0);
+        for (int i = 0; i < size; i++) {
+            words[i / per] |= (long) tiles[i] << (bits * (i % per));
+            if (tiles[i] == size - 1) {
+                blank = i;
+            }
+        }
+    }
+
+    private WidePuzzle(WidePuzzle wp, long[] words, int blank) {
+        this.m = wp.m;
+        this.n = wp.n;
+        this.size = wp.size;
+        this.bits = wp.bits;
+        this.per = wp.per;
+        this.mask = wp.mask;
+        this.goal = wp.goal;
+        this.table = wp.table;
+        this.words = words;
+        this.blank = blank;
+    }
+
+    @Override
+    public int get(int x, int y) {
+        return tile(words, y * n + x);
+    }
+
+    private int tile(long[] w, int i) {
+        return (int) ((w[i / per] >>> (bits * (i % per))) & mask);
+    }
+
+    /*
+     * Overwrites the tile at index i, which must currently hold old.
+     */
+    private void set(long[] w, int i, int old, int tile) {
+        w[i / per] ^= (long) (old ^ tile) << (bits * (i % per));
+    }
+
+    @Override
+    public boolean inPlaceMove(Move mv) {
+        if (!canMove(mv)) {
+            return false;
+        }
+        int d = delta(mv);
+        slide(words, blank, blank + d);
+        blank += d;
+        return true;
+    }
+
+    @Override
+    public WidePuzzle move(Move mv) {
+        if (!canMove(mv)) {
+            return null;
+        }
+        int d = delta(mv);
+        long[] newWords = Arrays.copyOf(words, words.length);
+        slide(newWords, blank, blank + d);
+        return new WidePuzzle(this, newWords, blank + d);
+    }
+
+    /*
+     * Slides the tile at index to into the blank at index from.
+     */
+    private void slide(long[] w, int from, int to) {
+        int t = tile(w, to);
+        set(w, from, size - 1, t);
+        set(w, to, t, size - 1);
+    }
+
+    @Override
+    public boolean solved() {
+        return Arrays.equals(words, goal);
+    }
+
+    @Override
+    public int words() {
+        return words.length;
+    }
+
+    @Override
+    public long word(int i) {
+        return words[i];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof WidePuzzle)) {
+            return false;
+        }
+
+        WidePuzzle wp = (WidePuzzle) o;
+        return wp.m == m && wp.n == n && Arrays.equals(wp.words, words);
+    }
+
+    @Override
+    public int hashCode() {
+        long h = 0;
+        for (long w : words) {
+            h = (h + w) * 0x9E3779B97F4A7C15L;
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,97 @@
+package util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+ * Priority queue of nodes keyed on the small integer cost
+ * stored on them by Heuristic.score(). Each cost has its own
+ * bucket, and each bucket is a stack, so among nodes of equal
+ * cost the most recently generated (deepest) is polled first.
+ * Offering and polling are both O(1).
+ */
+public class BucketQueue extends AbstractQueue<PuzzleNode> {
+
+    private ArrayList<ArrayList<PuzzleNode>> buckets;
+    private int min;
+    private int size;
+
+    public BucketQueue() {
+        buckets = new ArrayList<ArrayList<PuzzleNode>>();
+    }
+
+    @Override
+    public boolean offer(PuzzleNode n) {
+        int c = n.cost();
+        while (buckets.size() <= c) {
+            buckets.add(new ArrayList<PuzzleNode>());
+        }
+        buckets.get(c).add(n);
+        if (c < min) min = c;
+        size++;
+        return true;
+    }
+
+    @Override
+    public PuzzleNode poll() {
+        if (size == 0) {
+            return null;
+        }
+        ArrayList<PuzzleNode> bucket = lowest();
+        size--;
+        return bucket.remove(bucket.size() - 1);
+    }
+
+    @Override
+    public PuzzleNode peek() {
+        if (size == 0) {
+            return null;
+        }
+        ArrayList<PuzzleNode> bucket = lowest();
+        return bucket.get(bucket.size() - 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Returns the lowest non-empty bucket. Must only be
+     * called when the queue is not empty.
+     */
+    private ArrayList<PuzzleNode> lowest() {
+        while (buckets.get(min).isEmpty()) {
+            min++;
+        }
+        return buckets.get(min);
+    }
+
+    @Override
+    public Iterator<PuzzleNode> iterator() {
+        return new Iterator<PuzzleNode>() {
+
+            private int bucket = min;
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (bucket < buckets.size() && index >= buckets.get(bucket).size()) {
+                    bucket++;
+                    index = 0;
+                }
+                return bucket < buckets.size();
+            }
+
+            @Override
+            public PuzzleNode next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return buckets.get(bucket).get(index++);
+            }
+        };
+    }
+}
@@ -0,0 +1,233 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/*
+ * Live counters of one search, safe to update from many threads
+ * and to read while the search runs.
+ *
+ * Counts are kept in LongAdders, so threads updating them don't
+ * contend. Searches that count in tight loops add up locally and
+ * pass in their totals now and then, rather than on every node.
+ * Heuristic time is measured on a sample of calls and scaled up,
+ * since reading the clock on every call would cost more than some
+ * heuristics do.
+ *
+ * The counters can be written out as JSON, or registered as an
+ * MBean to be watched over JMX.
+ */
+public class Metrics implements MetricsMBean {
+
+    // One heuristic call in SAMPLE is timed
+    public static final int SAMPLE = 64;
+
+    private LongAdder expanded = new LongAdder();
+    private LongAdder generated = new LongAdder();
+    private LongAdder duplicates = new LongAdder();
+    private LongAdder heuristicNanos = new LongAdder();
+    private AtomicLong open = new AtomicLong();
+    private AtomicLong closed = new AtomicLong();
+    private AtomicLong peakMemory = new AtomicLong();
+    private List<Integer> thresholds = new CopyOnWriteArrayList<Integer>();
+    private volatile long start;
+    private volatile long stop;
+    private ObjectName name;
+
+    /*
+     * Marks the start of a search.
+     */
+    public void start() {
+        start = System.nanoTime();
+        stop = 0;
+        sampleMemory();
+    }
+
+    /*
+     * Marks the end of a search.
+     */
+    public void stop() {
+        sampleMemory();
+        stop = System.nanoTime();
+    }
+
+    public void expanded(long count) {
+        expanded.add(count);
+    }
+
+    public void generated(long count) {
+        generated.add(count);
+    }
+
+    /*
+     * Counts boards found again that were already known, whether
+     * in a closed set or a transposition table.
+     */
+    public void duplicates(long count) {
+        duplicates.add(count);
+    }
+
+    /*
+     * Adds the time of one timed heuristic call, standing for
+     * SAMPLE calls.
+     */
+    public void heuristic(long nanos) {
+        heuristicNanos.add(nanos * SAMPLE);
+    }
+
+    /*
+     * Records the current sizes of the open and closed sets.
+     */
+    public void sets(long open, long closed) {
+        this.open.set(open);
+        this.closed.set(closed);
+    }
+
+    /*
+     * Records the cost threshold of a new IDA* iteration.
+     */
+    public void threshold(int threshold) {
+        thresholds.add(threshold);
+    }
+
+    /*
+     * Notes the heap in use, if it is the most seen so far.
+     */
+    public void sampleMemory() {
+        Runtime r = Runtime.getRuntime();
+        long used = r.totalMemory() - r.freeMemory();
+        long peak = peakMemory.get();
+        while (used > peak && !peakMemory.compareAndSet(peak, used)) {
+            peak = peakMemory.get();
+        }
+    }
+
+    @Override
+    public long getExpanded() {
+        return expanded.sum();
+    }
+
+    @Override
+    public long getGenerated() {
+        return generated.sum();
+    }
+
+    @Override
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    @Override
+    public long getOpen() {
+        return open.get();
+    }
+
+    @Override
+    public long getClosed() {
+        return closed.get();
+    }
+
+    @Override
+    public long getPeakMemory() {
+        return peakMemory.get();
+    }
+
+    /*
+     * Returns the time since the search started, or the time it
+     * took if it has stopped.
+     */
+    @Override
+    public double getElapsedSeconds() {
+        if (start == 0) {
+            return 0;
+        }
+        long end = (stop == 0) ? System.nanoTime() : stop;
+        return (end - start) / 1e9;
+    }
+
+    @Override
+    public double getNodesPerSecond() {
+        double elapsed = getElapsedSeconds();
+        return (elapsed > 0) ? getExpanded() / elapsed : 0;
+    }
+
+    /*
+     * Returns the estimated fraction of the search's time spent
+     * in the heuristic.
+     */
+    @Override
+    public double getHeuristicShare() {
+        double elapsed = getElapsedSeconds();
+        return (elapsed > 0) ? Math.min(1, heuristicNanos.sum() / 1e9 / elapsed) : 0;
+    }
+
+    @Override
+    public int[] getThresholds() {
+        Object[] all = thresholds.toArray();
+        int[] values = new int[all.length];
+        for (int i = 0; i < all.length; i++) {
+            values[i] = (Integer) all[i];
+        }
+        return values;
+    }
+
+    /*
+     * Returns the counters as a JSON object on one line.
+     */
+    @Override
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{");
+        sb.append("\"expanded\":").append(getExpanded());
+        sb.append(",\"generated\":").append(getGenerated());
+        sb.append(",\"duplicates\":").append(getDuplicates());
+        sb.append(",\"open\":").append(getOpen());
+        sb.append(",\"closed\":").append(getClosed());
+        sb.append(",\"peakMemory\":").append(getPeakMemory());
+        sb.append(String.format(Locale.ROOT, ",\"elapsedSeconds\":%.6f", getElapsedSeconds()));
+        sb.append(String.format(Locale.ROOT, ",\"nodesPerSecond\":%.1f", getNodesPerSecond()));
+        sb.append(String.format(Locale.ROOT, ",\"heuristicShare\":%.4f", getHeuristicShare()));
+        sb.append(",\"thresholds\":[");
+        int[] t = getThresholds();
+        for (int i = 0; i < t.length; i++) {
+            sb.append((i == 0) ? "" : ",").append(t[i]);
+        }
+        return sb.append("]}").toString();
+    }
+
+    /*
+     * Registers these metrics with the platform MBean server under
+     * the given name, e.g. "puzzle:type=Metrics,name=trial-1".
+     */
+    public void register(String objectName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            name = new ObjectName(objectName);
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + objectName, e);
+        }
+    }
+
+    /*
+     * Removes these metrics from the MBean server, if registered.
+     */
+    public void unregister() {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            // Already gone
+        }
+        name = null;
+    }
+}
@@ -0,0 +1,30 @@
+package util;
+
+/*
+ * Management interface of Metrics, through which JMX clients
+ * such as JConsole read a search's counters while it runs.
+ */
+public interface MetricsMBean {
+
+    long getExpanded();
+
+    long getGenerated();
+
+    long getDuplicates();
+
+    long getOpen();
+
+    long getClosed();
+
+    long getPeakMemory();
+
+    double getElapsedSeconds();
+
+    double getNodesPerSecond();
+
+    double getHeuristicShare();
+
+    int[] getThresholds();
+
+    String toJson();
+}
@@ -15,6 +15,8 @@ public class PuzzleNode implements Evaluable {
     private int depth;
     private Move prev;
     private PuzzleNode prevPuzzle;
+    private int cost;
+    private int estimate;
 
     public PuzzleNode(AbstractPuzzle ap, int d, PuzzleNode p, Move m) {
         puzzle = ap;
@@ -28,8 +30,8 @@ public class PuzzleNode implements Evaluable {
      * successors of the current puzzle state.
      */
     public List<PuzzleNode> generate() {
-        List<PuzzleNode> next = new ArrayList<PuzzleNode>();
-        List<Move> moves = puzzle.validMoves();
+        Move[] moves = puzzle.successors();
+        List<PuzzleNode> next = new ArrayList<PuzzleNode>(moves.length);
         for (Move mv : moves) {
             next.add(new PuzzleNode(puzzle.move(mv), depth + 1, this, mv));
         }
@@ -43,6 +45,36 @@ public class PuzzleNode implements Evaluable {
         return depth; 
     }
 
+    /*
+     * Stores the cost and estimate computed for this node,
+     * so they are only evaluated once.
+     */
+    public void score(int c, int e) {
+        cost = c;
+        estimate = e;
+    }
+
+    /*
+     * Returns the cost stored by score().
+     */
+    public int cost() {
+        return cost;
+    }
+
+    /*
+     * Returns the estimated distance to the goal stored by score().
+     */
+    public int estimate() {
+        return estimate;
+    }
+
+    /*
+     * Returns the puzzle wrapped by this node.
+     */
+    public AbstractPuzzle puzzle() {
+        return puzzle;
+    }
+
     /*
      * Returns the tile at (x, y), indexed from top-left.
      */
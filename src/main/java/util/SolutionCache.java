@@ -0,0 +1,214 @@
+package util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import puzzle.AbstractPuzzle;
+import puzzle.Move;
+
+/*
+ * Bounded cache of shortest solutions, shared by every player
+ * and safe to use from many threads.
+ *
+ * Boards are keyed by their packed encoding and their size.
+ * Solutions are stored two bits a move, in the order of Move's
+ * constants. Every board along a stored solution is cached too,
+ * sharing its moves from that point on, since the rest of a
+ * shortest path is itself a shortest path.
+ *
+ * The cache is split into stripes picked by the high bits of the
+ * board's hash, each a LinkedHashMap in access order under its own
+ * lock, and the least recently used board of a full stripe is
+ * evicted to make room.
+ */
+public class SolutionCache {
+
+    private static final int STRIPES = 16;
+
+    private Stripe[] stripes;
+    private LongAdder hits = new LongAdder();
+    private LongAdder misses = new LongAdder();
+    private LongAdder evictions = new LongAdder();
+
+    /*
+     * Creates a cache of at most about the given number of boards.
+     */
+    public SolutionCache(int entries) {
+        stripes = new Stripe[STRIPES];
+        int each = Math.max(1, (entries + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(each);
+        }
+    }
+
+    /*
+     * Returns the shortest solution of p, in the order to play
+     * it, or null if p isn't cached.
+     */
+    public Move[] get(AbstractPuzzle p) {
+        Key key = new Key(p);
+        Suffix e;
+        Stripe s = stripe(key);
+        synchronized (s) {
+            e = s.get(key);
+        }
+        if (e == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return e.moves();
+    }
+
+    /*
+     * Stores the given shortest solution of p, along with the
+     * rest of it for every board it passes through. Boards already
+     * cached are left alone, as their solutions are as short.
+     */
+    public void put(AbstractPuzzle p, Move[] solution) {
+        byte[] packed = new byte[(solution.length + 3) / 4];
+        for (int i = 0; i < solution.length; i++) {
+            packed[i >> 2] |= solution[i].ordinal() << ((i & 3) * 2);
+        }
+
+        AbstractPuzzle q = p;
+        for (int i = 0; i < solution.length; i++) {
+            Key key = new Key(q);
+            Stripe s = stripe(key);
+            synchronized (s) {
+                if (!s.containsKey(key)) {
+                    s.put(key, new Suffix(packed, i, solution.length));
+                }
+            }
+            q = q.move(solution[i]);
+        }
+    }
+
+    private Stripe stripe(Key key) {
+        return stripes[(int) (key.hash >>> 60) & (STRIPES - 1)];
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /*
+     * Returns the number of boards cached.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                size += s.size();
+            }
+        }
+        return size;
+    }
+
+    /*
+     * Returns the counters as a JSON object on one line.
+     */
+    public String toJson() {
+        return "{\"hits\":" + getHits()
+            + ",\"misses\":" + getMisses()
+            + ",\"evictions\":" + getEvictions()
+            + ",\"size\":" + size() + "}";
+    }
+
+    /*
+     * A board's encoding and size, with its hash worked out once.
+     */
+    private static class Key {
+
+        private long[] words;
+        private int rows;
+        private int cols;
+        private long hash;
+
+        Key(AbstractPuzzle p) {
+            words = new long[p.words()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = p.word(i);
+            }
+            rows = p.rows();
+            cols = p.cols();
+            hash = StateTable.hash(p);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return hash == k.hash && rows == k.rows && cols == k.cols
+                && Arrays.equals(words, k.words);
+        }
+    }
+
+    /*
+     * The moves of a solution from the given offset on. The
+     * suffixes of one solution share its packed moves.
+     */
+    private static class Suffix {
+
+        private byte[] packed;
+        private int offset;
+        private int length;
+
+        Suffix(byte[] packed, int offset, int length) {
+            this.packed = packed;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        Move[] moves() {
+            Move[] all = Move.values();
+            Move[] moves = new Move[length - offset];
+            for (int i = offset; i < length; i++) {
+                moves[i - offset] = all[(packed[i >> 2] >> ((i & 3) * 2)) & 3];
+            }
+            return moves;
+        }
+    }
+
+    /*
+     * One stripe of the cache, evicting its least recently
+     * used board once full.
+     */
+    private class Stripe extends LinkedHashMap<Key, Suffix> {
+
+        private static final long serialVersionUID = 1L;
+
+        private int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Suffix> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package util;
+
+import puzzle.AbstractPuzzle;
+
+/*
+ * Set of visited puzzle states, keyed by each board's packed
+ * encoding (see AbstractPuzzle.word). Keys live side by side in
+ * one long[] using open addressing with linear probing, so an
+ * entry costs a few longs instead of a node, a puzzle and a grid.
+ *
+ * A slot is empty when its first word is zero. That word always
+ * holds at least two distinct tiles, so no real board encodes to it.
+ *
+ * A board can also carry an int value, such as the shortest
+ * depth it was reached at. Values are only allocated once the
+ * first one is stored, so a table used as a set pays nothing.
+ */
+public class StateTable {
+
+    private int width;
+    private int maxCapacity;
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int limit;
+
+    /*
+     * Creates a table for boards whose encoding is width longs.
+     */
+    public StateTable(int width) {
+        this(width, 1 << 12);
+    }
+
+    /*
+     * Creates a table for boards whose encoding is width longs,
+     * sized to hold about expected states before growing.
+     */
+    public StateTable(int width, int expected) {
+        this.width = width;
+        maxCapacity = Integer.highestOneBit((1 << 30) / width);
+        int capacity = 16;
+        while (capacity < maxCapacity && capacity * 3L / 4 < expected) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /*
+     * Adds the given board. Returns true if it was not
+     * already present.
+     */
+    public boolean add(AbstractPuzzle p) {
+        int slot = find(p);
+        int base = slot * width;
+        if (keys[base] != 0) {
+            return false;
+        }
+        for (int i = 0; i < width; i++) {
+            keys[base + i] = p.word(i);
+        }
+        if (++size > limit) {
+            grow();
+        }
+        return true;
+    }
+
+    /*
+     * Adds the given board with the given value. Returns true if
+     * it was not already present, and otherwise leaves it as it is.
+     */
+    public boolean add(AbstractPuzzle p, int value) {
+        return !contains(p) && lower(p, value);
+    }
+
+    /*
+     * Stores value for the given board if it is absent, or if
+     * its stored value is larger. Returns true if it was stored.
+     */
+    public boolean lower(AbstractPuzzle p, int value) {
+        if (values == null) {
+            values = new int[mask + 1];
+        }
+        int slot = find(p);
+        int base = slot * width;
+        if (keys[base] != 0) {
+            if (values[slot] <= value) {
+                return false;
+            }
+            values[slot] = value;
+            return true;
+        }
+        for (int i = 0; i < width; i++) {
+            keys[base + i] = p.word(i);
+        }
+        values[slot] = value;
+        if (++size > limit) {
+            grow();
+        }
+        return true;
+    }
+
+    /*
+     * Returns the value stored for the given board, or
+     * Integer.MAX_VALUE if it has none.
+     */
+    public int get(AbstractPuzzle p) {
+        int slot = find(p);
+        if (values == null || keys[slot * width] == 0) {
+            return Integer.MAX_VALUE;
+        }
+        return values[slot];
+    }
+
+    /*
+     * Returns true if the given board is present.
+     */
+    public boolean contains(AbstractPuzzle p) {
+        return keys[find(p) * width] != 0;
+    }
+
+    /*
+     * Returns the number of boards in this table.
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Mixes the bits of h so that every input bit affects
+     * every output bit (the MurmurHash3 finalizer).
+     */
+    public static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /*
+     * Returns a well-mixed hash of the given board's encoding.
+     * Tables index by its low bits, so callers spreading boards
+     * over several tables should pick one by its high bits.
+     */
+    public static long hash(AbstractPuzzle p) {
+        long h = 0;
+        for (int i = 0, w = p.words(); i < w; i++) {
+            h = mix(h + p.word(i));
+        }
+        return h;
+    }
+
+    /*
+     * Returns the slot holding p, or the empty slot where
+     * it would be inserted.
+     */
+    private int find(AbstractPuzzle p) {
+        int slot = (int) hash(p) & mask;
+        while (true) {
+            int base = slot * width;
+            if (keys[base] == 0) {
+                return slot;
+            }
+            int i = 0;
+            while (i < width && keys[base + i] == p.word(i)) {
+                i++;
+            }
+            if (i == width) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity * width];
+        if (values != null) {
+            values = new int[capacity];
+        }
+        mask = capacity - 1;
+        limit = (capacity == maxCapacity) ? capacity - 1 : capacity / 4 * 3;
+    }
+
+    /*
+     * Doubles the table. Keys are moved as raw longs, so no
+     * board objects are touched.
+     */
+    private void grow() {
+        long[] old = keys;
+        int[] oldValues = values;
+        if (mask + 1 >= maxCapacity) {
+            throw new IllegalStateException("StateTable is full");
+        }
+        allocate((mask + 1) * 2);
+        for (int base = 0; base < old.length; base += width) {
+            if (old[base] == 0) continue;
+            long h = 0;
+            for (int i = 0; i < width; i++) {
+                h = mix(h + old[base + i]);
+            }
+            int slot = (int) h & mask;
+            while (keys[slot * width] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            System.arraycopy(old, base, keys, slot * width, width);
+            if (values != null) {
+                values[slot] = oldValues[base / width];
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package util;
+
+import puzzle.AbstractPuzzle;
+
+/*
+ * Fixed-size, lossy table of what a depth-first search has
+ * learned about the boards it visited: the shallowest depth each
+ * was reached at, and a lower bound on its distance to the goal
+ * backed up from the last search below it.
+ *
+ * Boards are keyed by StateTable.hash, which is one-to-one for
+ * boards of one long, so those never collide. Wider boards can
+ * share a hash, so the table also keeps their whole encoding, and
+ * only matches a board whose encoding is the same. Each board may sit
+ * in one of two neighbouring slots. When both are taken by other
+ * boards, the one reached deeper is replaced, since a shallower
+ * board stands for a bigger subtree; if the new board is deeper
+ * than both, it is not stored.
+ */
+public class TranspositionTable {
+
+    private long[] keys;
+    private long[] boards;
+    private int[] depths;
+    private int[] estimates;
+    private int mask;
+    private int width;
+
+    /*
+     * Creates a table of the given number of entries, rounded
+     * down to a power of two, for boards whose encoding is width
+     * longs.
+     */
+    public TranspositionTable(int entries, int width) {
+        int capacity = Integer.highestOneBit(Math.max(2, entries));
+        keys = new long[capacity];
+        depths = new int[capacity];
+        estimates = new int[capacity];
+        mask = capacity - 1;
+        this.width = width;
+        if (width > 1) {
+            boards = new long[capacity * width];
+        }
+    }
+
+    /*
+     * Returns the key of the given board.
+     */
+    public static long key(AbstractPuzzle p) {
+        return StateTable.hash(p);
+    }
+
+    /*
+     * Returns the slot holding p, whose key is given, or -1 if
+     * p is not in the table.
+     */
+    public int find(long key, AbstractPuzzle p) {
+        int slot = (int) key & mask;
+        if (holds(slot, key, p)) {
+            return slot;
+        }
+        slot ^= 1;
+        return holds(slot, key, p) ? slot : -1;
+    }
+
+    private boolean holds(int slot, long key, AbstractPuzzle p) {
+        if (keys[slot] != key) {
+            return false;
+        }
+        for (int i = 0, base = slot * width; boards != null && i < width; i++) {
+            if (boards[base + i] != p.word(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Returns the depth stored in the given slot.
+     */
+    public int depth(int slot) {
+        return depths[slot];
+    }
+
+    /*
+     * Returns the estimate stored in the given slot.
+     */
+    public int estimate(int slot) {
+        return estimates[slot];
+    }
+
+    /*
+     * Stores the depth and estimate of p, whose key is given,
+     * replacing its old entry or the deeper of the two it may take.
+     */
+    public void store(long key, AbstractPuzzle p, int depth, int estimate) {
+        int a = (int) key & mask;
+        int b = a ^ 1;
+        int slot;
+        if (keys[a] == 0 || holds(a, key, p)) {
+            slot = a;
+        } else if (keys[b] == 0 || holds(b, key, p)) {
+            slot = b;
+        } else {
+            slot = (depths[a] >= depths[b]) ? a : b;
+            if (depths[slot] < depth) {
+                return;
+            }
+        }
+        keys[slot] = key;
+        for (int i = 0, base = slot * width; boards != null && i < width; i++) {
+            boards[base + i] = p.word(i);
+        }
+        depths[slot] = depth;
+        estimates[slot] = estimate;
+    }
+}